@@ -0,0 +1,34 @@
+package com.project.back_end.DTO;
+
+import com.project.back_end.models.Appointment;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * Appointment as returned by the doctor's day view. Same JSON as the entity
+ * (nested doctor and patient plus the derived date/time fields), but the
+ * derived values are computed once here instead of by @Transient getters.
+ */
+public record AppointmentResponse(
+        Long id,
+        DoctorResponse doctor,
+        PatientResponse patient,
+        LocalDateTime appointmentTime,
+        int status,
+        boolean prescriptionAdded,
+        LocalDateTime endTime,
+        LocalDate appointmentDate,
+        LocalTime appointmentTimeOnly
+) {
+
+    public static AppointmentResponse from(Appointment appointment) {
+        LocalDateTime time = appointment.getAppointmentTime();
+        return new AppointmentResponse(appointment.getId(),
+                DoctorResponse.from(appointment.getDoctor()),
+                PatientResponse.from(appointment.getPatient()),
+                time, appointment.getStatus(), appointment.isPrescriptionAdded(),
+                time.plusHours(1), time.toLocalDate(), time.toLocalTime());
+    }
+}
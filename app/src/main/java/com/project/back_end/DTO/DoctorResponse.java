@@ -0,0 +1,25 @@
+package com.project.back_end.DTO;
+
+import com.project.back_end.models.Doctor;
+
+import java.util.List;
+
+/**
+ * Doctor as returned by the API: the entity's JSON without the password, built
+ * while the entity (and its availableTimes) is still attached.
+ */
+public record DoctorResponse(
+        Long id,
+        String name,
+        String specialty,
+        String email,
+        String phone,
+        List<String> availableTimes
+) {
+
+    public static DoctorResponse from(Doctor doctor) {
+        List<String> times = doctor.getAvailableTimes() == null ? List.of() : List.copyOf(doctor.getAvailableTimes());
+        return new DoctorResponse(doctor.getId(), doctor.getName(), doctor.getSpecialty(),
+                doctor.getEmail(), doctor.getPhone(), times);
+    }
+}
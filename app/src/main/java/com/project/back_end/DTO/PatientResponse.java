@@ -0,0 +1,20 @@
+package com.project.back_end.DTO;
+
+import com.project.back_end.models.Patient;
+
+/**
+ * Patient as returned by the API: the entity's JSON without the password.
+ */
+public record PatientResponse(
+        Long id,
+        String name,
+        String email,
+        String phone,
+        String address
+) {
+
+    public static PatientResponse from(Patient patient) {
+        return new PatientResponse(patient.getId(), patient.getName(), patient.getEmail(),
+                patient.getPhone(), patient.getAddress());
+    }
+}
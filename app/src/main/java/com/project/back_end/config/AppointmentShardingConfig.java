@@ -0,0 +1,55 @@
+package com.project.back_end.config;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.PriorityOrdered;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.lang.NonNull;
+
+import javax.sql.DataSource;
+
+/**
+ * Puts shard routing under the application DataSource when
+ * {@code appointment.shards.urls} is set. Runs before the bulkhead
+ * post-processor, so the jdbc bulkhead still covers every shard.
+ */
+@Configuration
+public class AppointmentShardingConfig {
+
+    @Bean
+    public static AppointmentShards appointmentShards(Environment environment) {
+        return new AppointmentShards(environment);
+    }
+
+    @Bean
+    public static BeanPostProcessor appointmentShardPostProcessor(AppointmentShards appointmentShards) {
+        return new ShardPostProcessor(appointmentShards);
+    }
+
+    private static final class ShardPostProcessor implements BeanPostProcessor, PriorityOrdered {
+
+        private final AppointmentShards appointmentShards;
+
+        private ShardPostProcessor(AppointmentShards appointmentShards) {
+            this.appointmentShards = appointmentShards;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(@NonNull Object bean, @NonNull String beanName) {
+            if (!appointmentShards.isSharded() || !(bean instanceof DataSource dataSource)
+                    || bean instanceof BulkheadDataSource) {
+                return bean;
+            }
+            // Lazy: the shard is usually bound inside the transaction, after it has begun
+            return new LazyConnectionDataSourceProxy(appointmentShards.routing(dataSource));
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.HIGHEST_PRECEDENCE;
+        }
+    }
+}
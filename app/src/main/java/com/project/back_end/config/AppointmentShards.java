@@ -0,0 +1,109 @@
+package com.project.back_end.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The appointment shards: {@code shard-0} is the regular application database,
+ * {@code shard-1..n} come from {@code appointment.shards.urls}. Every shard
+ * holds the full schema; appointments (with their archive and outbox rows)
+ * live on the shard of their doctor.
+ */
+public class AppointmentShards {
+
+    public static final String DEFAULT_SHARD = "shard-0";
+
+    private final Map<String, DataSource> extraShards = new LinkedHashMap<>();
+    private final List<String> names = new ArrayList<>();
+
+    public AppointmentShards(Environment environment) {
+        names.add(DEFAULT_SHARD);
+        List<String> urls = Arrays.stream(environment.getProperty("appointment.shards.urls", String[].class, new String[0]))
+                .map(String::trim)
+                .filter(url -> !url.isEmpty())
+                .toList();
+        if (urls.isEmpty()) {
+            return;
+        }
+        // Credentials are only resolved for real shards, so an unsharded setup needs none of them
+        String username = environment.getProperty("appointment.shards.username",
+                environment.getProperty("spring.datasource.username"));
+        String password = environment.getProperty("appointment.shards.password",
+                environment.getProperty("spring.datasource.password"));
+        int poolSize = environment.getProperty("appointment.shards.pool-size", Integer.class, 10);
+
+        for (String url : urls) {
+            String name = "shard-" + names.size();
+            HikariDataSource shard = new HikariDataSource();
+            shard.setPoolName(name);
+            shard.setJdbcUrl(url);
+            shard.setUsername(username);
+            shard.setPassword(password);
+            shard.setMaximumPoolSize(poolSize);
+            extraShards.put(name, shard);
+            names.add(name);
+        }
+    }
+
+    public boolean isSharded() {
+        return names.size() > 1;
+    }
+
+    public List<String> getNames() {
+        return names;
+    }
+
+    // Pools of shard-1..n by name, for metrics; shard-0 is the application DataSource
+    public Map<String, DataSource> getShardDataSources() {
+        return Collections.unmodifiableMap(extraShards);
+    }
+
+    // Sends connections to the shard in ShardContext, or to the default DataSource for shard-0
+    public DataSource routing(DataSource defaultDataSource) {
+        return new AbstractDataSource() {
+            @Override
+            public Connection getConnection() throws SQLException {
+                return target().getConnection();
+            }
+
+            @Override
+            public Connection getConnection(String username, String password) throws SQLException {
+                return target().getConnection(username, password);
+            }
+
+            // Unwraps to shard-0, so Boot's pool metrics and health still find the application pool
+            @Override
+            public <T> T unwrap(Class<T> iface) throws SQLException {
+                return iface.isInstance(this) ? iface.cast(this) : defaultDataSource.unwrap(iface);
+            }
+
+            @Override
+            public boolean isWrapperFor(Class<?> iface) throws SQLException {
+                return iface.isInstance(this) || defaultDataSource.isWrapperFor(iface);
+            }
+
+            private DataSource target() {
+                String shard = ShardContext.current();
+                if (shard == null || DEFAULT_SHARD.equals(shard)) {
+                    return defaultDataSource;
+                }
+                DataSource dataSource = extraShards.get(shard);
+                if (dataSource == null) {
+                    throw new IllegalStateException("Unknown appointment shard " + shard);
+                }
+                return dataSource;
+            }
+        };
+    }
+}
@@ -0,0 +1,127 @@
+package com.project.back_end.config;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.ProxyMethodInvocation;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.lang.NonNull;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Puts the bulkheads from {@link BulkheadRegistry} in front of both datastores
+ * and the configured endpoint groups. The DataSource is wrapped in a
+ * {@link BulkheadDataSource}; MongoTemplate gets a proxy that holds a permit
+ * for the duration of each call, for each bulkOps(...).execute(), and from a
+ * stream(...) call until the stream is closed.
+ */
+@Configuration
+public class BulkheadConfig implements WebMvcConfigurer {
+
+    private final BulkheadRegistry bulkheadRegistry;
+
+    public BulkheadConfig(BulkheadRegistry bulkheadRegistry) {
+        this.bulkheadRegistry = bulkheadRegistry;
+    }
+
+    // Static: the post-processor below needs it before regular beans exist
+    @Bean
+    public static BulkheadRegistry bulkheadRegistry(Environment environment) {
+        return new BulkheadRegistry(environment);
+    }
+
+    @Bean
+    public static BeanPostProcessor datastoreBulkheadPostProcessor(BulkheadRegistry bulkheadRegistry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(@NonNull Object bean, @NonNull String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof BulkheadDataSource)) {
+                    return new BulkheadDataSource(dataSource, bulkheadRegistry.get(BulkheadRegistry.JDBC));
+                }
+                if (bean instanceof MongoTemplate mongoTemplate) {
+                    return guardMongoTemplate(mongoTemplate, bulkheadRegistry.get(BulkheadRegistry.MONGO));
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Override
+    public void addInterceptors(@NonNull InterceptorRegistry registry) {
+        for (Map.Entry<String, List<String>> group : bulkheadRegistry.getEndpointGroupPaths().entrySet()) {
+            if (group.getValue().isEmpty()) {
+                continue;
+            }
+            registry.addInterceptor(new BulkheadInterceptor(bulkheadRegistry.get(group.getKey())))
+                    .addPathPatterns(group.getValue());
+        }
+    }
+
+    private static MongoTemplate guardMongoTemplate(MongoTemplate target, Bulkhead bulkhead) {
+        ProxyFactory proxyFactory = new ProxyFactory(target);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvice((MethodInterceptor) invocation -> {
+            String method = invocation.getMethod().getName();
+            // Bulk writes do their I/O in execute(), on the returned builder
+            if (method.equals("bulkOps")) {
+                return guardBulkOperations((BulkOperations) invocation.proceed(), bulkhead);
+            }
+            // A stream reads rows from the connection until closed, so the permit is held until then
+            if (method.equals("stream")) {
+                acquire(bulkhead);
+                try {
+                    return ((Stream<?>) invocation.proceed()).onClose(bulkhead::release);
+                } catch (Throwable e) {
+                    bulkhead.release();
+                    throw e;
+                }
+            }
+            // Other accessors and builders (getConverter, indexOps...) do no I/O themselves
+            if (method.startsWith("get") || method.endsWith("Ops") || invocation.getMethod().getDeclaringClass() == Object.class) {
+                return invocation.proceed();
+            }
+            return withPermit(invocation, bulkhead);
+        });
+        return (MongoTemplate) proxyFactory.getProxy();
+    }
+
+    private static BulkOperations guardBulkOperations(BulkOperations target, Bulkhead bulkhead) {
+        ProxyFactory proxyFactory = new ProxyFactory(target);
+        proxyFactory.addAdvice((MethodInterceptor) invocation -> {
+            if (invocation.getMethod().getName().equals("execute")) {
+                return withPermit(invocation, bulkhead);
+            }
+            Object result = invocation.proceed();
+            // Builder methods return the target; hand back the proxy so chained execute() is guarded too
+            return result == target ? ((ProxyMethodInvocation) invocation).getProxy() : result;
+        });
+        return (BulkOperations) proxyFactory.getProxy();
+    }
+
+    private static Object withPermit(MethodInvocation invocation, Bulkhead bulkhead) throws Throwable {
+        acquire(bulkhead);
+        try {
+            return invocation.proceed();
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    private static void acquire(Bulkhead bulkhead) {
+        if (!bulkhead.tryAcquire()) {
+            throw new TransientDataAccessResourceException("Bulkhead '" + bulkhead.getName() + "' saturated");
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.project.back_end.config;
+
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+/**
+ * Limits one endpoint group to its bulkhead's permits. Saturated requests get
+ * 503 with Retry-After right away instead of occupying a request thread.
+ * For async handlers the permit is held until the async dispatch completes.
+ */
+public class BulkheadInterceptor implements AsyncHandlerInterceptor {
+
+    private final Bulkhead bulkhead;
+    private final String permitAttribute;
+
+    public BulkheadInterceptor(Bulkhead bulkhead) {
+        this.bulkhead = bulkhead;
+        this.permitAttribute = BulkheadInterceptor.class.getName() + "." + bulkhead.getName();
+    }
+
+    @Override
+    public boolean preHandle(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                             @NonNull Object handler) throws Exception {
+        // The async re-dispatch already holds the permit taken on the original request
+        if (request.getDispatcherType() == DispatcherType.ASYNC && request.getAttribute(permitAttribute) != null) {
+            return true;
+        }
+        if (!bulkhead.tryAcquire()) {
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getWriter().write("{\"error\":\"Service busy, please retry\"}");
+            return false;
+        }
+        request.setAttribute(permitAttribute, Boolean.TRUE);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                                @NonNull Object handler, Exception ex) {
+        if (request.isAsyncStarted()) {
+            return;
+        }
+        if (request.getAttribute(permitAttribute) != null) {
+            request.removeAttribute(permitAttribute);
+            bulkhead.release();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.project.back_end.config;
+
+import org.springframework.core.env.Environment;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * All bulkheads, built from {@code application.properties}:
+ *
+ * - datastores: {@code jdbc} guards the DataSource, {@code mongo} the blocking MongoTemplate
+ * - endpoint groups: listed in {@code bulkhead.endpoint-groups}, each with its own {@code paths}
+ *
+ * Every bulkhead reads {@code bulkhead.<name>.max-concurrent}, {@code .max-queue} and
+ * {@code .max-wait-ms}, so a slow datastore can only tie up its own permits.
+ */
+public class BulkheadRegistry {
+
+    public static final String JDBC = "jdbc";
+    public static final String MONGO = "mongo";
+
+    private final Map<String, Bulkhead> bulkheads = new LinkedHashMap<>();
+    private final Map<String, List<String>> endpointGroupPaths = new LinkedHashMap<>();
+
+    public BulkheadRegistry(Environment environment) {
+        int hikariPoolSize = environment.getProperty("spring.datasource.hikari.maximum-pool-size", Integer.class, 10);
+        register(environment, JDBC, hikariPoolSize);
+        register(environment, MONGO, 100);
+
+        String[] groups = environment.getProperty("bulkhead.endpoint-groups", String[].class, new String[0]);
+        for (String group : groups) {
+            String name = group.trim();
+            if (name.isEmpty() || bulkheads.containsKey(name)) {
+                continue;
+            }
+            register(environment, name, 50);
+            String[] paths = environment.getProperty("bulkhead." + name + ".paths", String[].class, new String[0]);
+            endpointGroupPaths.put(name, Arrays.stream(paths).map(String::trim).filter(p -> !p.isEmpty()).toList());
+        }
+    }
+
+    public Bulkhead get(String name) {
+        return bulkheads.get(name);
+    }
+
+    public Collection<Bulkhead> getAll() {
+        return bulkheads.values();
+    }
+
+    // Endpoint group name -> Ant-style path patterns it covers
+    public Map<String, List<String>> getEndpointGroupPaths() {
+        return endpointGroupPaths;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (Bulkhead bulkhead : bulkheads.values()) {
+            stats.put(bulkhead.getName(), Map.of(
+                    "maxConcurrent", bulkhead.getMaxConcurrent(),
+                    "maxQueue", bulkhead.getMaxQueue(),
+                    "maxWaitMs", bulkhead.getMaxWaitMillis(),
+                    "inUse", bulkhead.getInUse(),
+                    "waiting", bulkhead.getWaiting(),
+                    "rejected", bulkhead.getRejectedCount()
+            ));
+        }
+        return stats;
+    }
+
+    private void register(Environment environment, String name, int defaultMaxConcurrent) {
+        String prefix = "bulkhead." + name + ".";
+        int maxConcurrent = environment.getProperty(prefix + "max-concurrent", Integer.class, defaultMaxConcurrent);
+        int maxQueue = environment.getProperty(prefix + "max-queue", Integer.class, maxConcurrent);
+        long maxWaitMs = environment.getProperty(prefix + "max-wait-ms", Long.class, 1000L);
+        bulkheads.put(name, new Bulkhead(name, maxConcurrent, maxQueue, Duration.ofMillis(maxWaitMs)));
+    }
+}
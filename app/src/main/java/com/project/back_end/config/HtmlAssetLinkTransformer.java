@@ -0,0 +1,52 @@
+package com.project.back_end.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.NonNull;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.servlet.resource.ResourceTransformer;
+import org.springframework.web.servlet.resource.ResourceTransformerChain;
+import org.springframework.web.servlet.resource.TransformedResource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Points src/href attributes of the static HTML pages at the versioned asset
+ * URLs: "../js/util.js" and "/assets/css/style.css" become
+ * "/v-{hash}/js/util.js" and "/v-{hash}/assets/css/style.css".
+ */
+public class HtmlAssetLinkTransformer implements ResourceTransformer {
+
+    private static final Pattern ASSET_LINK =
+            Pattern.compile("(\\s(?:src|href)=[\"'])(?:\\.\\./)*/?((?:js|assets)/)");
+
+    private final StaticAssets staticAssets;
+
+    public HtmlAssetLinkTransformer(StaticAssets staticAssets) {
+        this.staticAssets = staticAssets;
+    }
+
+    @Override
+    @NonNull
+    public Resource transform(@NonNull HttpServletRequest request, @NonNull Resource resource,
+                              @NonNull ResourceTransformerChain chain) throws IOException {
+        resource = chain.transform(request, resource);
+        String filename = resource.getFilename();
+        if (filename == null || !filename.endsWith(".html")) {
+            return resource;
+        }
+
+        String html;
+        try (InputStream in = resource.getInputStream()) {
+            html = StreamUtils.copyToString(in, StandardCharsets.UTF_8);
+        }
+        Matcher matcher = ASSET_LINK.matcher(html);
+        String rewritten = matcher.replaceAll(match ->
+                Matcher.quoteReplacement(match.group(1) + staticAssets.getPrefix() + "/" + match.group(2)));
+        return new TransformedResource(resource, rewritten.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,86 @@
+package com.project.back_end.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+/**
+ * Meters Boot cannot find on its own. The application pool gets Hikari's
+ * own metrics from Boot (the routing DataSources unwrap to it); the replica
+ * and extra shard pools are created internally, so their connection gauges
+ * are bound here under the same names, tagged with the pool name. Bulkheads
+ * are tagged with their configured name. No tag takes a request value.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public MeterBinder internalPoolMetrics(AppointmentShards appointmentShards,
+                                           ObjectProvider<ReplicaRouter> replicaRouter) {
+        return registry -> {
+            Map<String, DataSource> pools = new LinkedHashMap<>(appointmentShards.getShardDataSources());
+            replicaRouter.ifAvailable(router -> pools.putAll(router.getReplicaDataSources()));
+            pools.forEach((name, dataSource) -> {
+                if (dataSource instanceof HikariDataSource pool) {
+                    bindPool(registry, name, pool);
+                }
+            });
+        };
+    }
+
+    @Bean
+    public MeterBinder bulkheadMetrics(BulkheadRegistry bulkheadRegistry) {
+        return registry -> {
+            for (Bulkhead bulkhead : bulkheadRegistry.getAll()) {
+                String name = bulkhead.getName();
+                Gauge.builder("bulkhead.in.use", bulkhead, Bulkhead::getInUse)
+                        .tag("name", name)
+                        .description("Permits currently held")
+                        .register(registry);
+                Gauge.builder("bulkhead.waiting", bulkhead, Bulkhead::getWaiting)
+                        .tag("name", name)
+                        .description("Callers queued for a permit")
+                        .register(registry);
+                Gauge.builder("bulkhead.max.concurrent", bulkhead, Bulkhead::getMaxConcurrent)
+                        .tag("name", name)
+                        .register(registry);
+                FunctionCounter.builder("bulkhead.rejected", bulkhead, Bulkhead::getRejectedCount)
+                        .tag("name", name)
+                        .description("Calls turned away because the bulkhead was saturated")
+                        .register(registry);
+            }
+        };
+    }
+
+    private static void bindPool(MeterRegistry registry, String name, HikariDataSource pool) {
+        poolGauge(registry, "hikaricp.connections.active", name, pool, HikariPoolMXBean::getActiveConnections);
+        poolGauge(registry, "hikaricp.connections.idle", name, pool, HikariPoolMXBean::getIdleConnections);
+        poolGauge(registry, "hikaricp.connections.pending", name, pool, HikariPoolMXBean::getThreadsAwaitingConnection);
+        poolGauge(registry, "hikaricp.connections", name, pool, HikariPoolMXBean::getTotalConnections);
+        Gauge.builder("hikaricp.connections.max", pool, HikariDataSource::getMaximumPoolSize)
+                .tag("pool", name)
+                .register(registry);
+    }
+
+    // The pool starts on its first connection; until then it reports zero
+    private static void poolGauge(MeterRegistry registry, String metric, String name, HikariDataSource pool,
+                                  ToIntFunction<HikariPoolMXBean> value) {
+        Gauge.builder(metric, pool, p -> {
+                    HikariPoolMXBean mxBean = p.getHikariPoolMXBean();
+                    return mxBean != null ? value.applyAsInt(mxBean) : 0;
+                })
+                .tag("pool", name)
+                .register(registry);
+    }
+}
@@ -0,0 +1,117 @@
+package com.project.back_end.config;
+
+import com.project.back_end.models.Prescription;
+import com.project.back_end.models.PrescriptionRollup;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.stereotype.Component;
+
+/**
+ * Creates the prescriptions indexes at startup (Boot leaves auto index creation off).
+ *
+ * - idx_prescription_appointment: appointmentId, unique when the collection has no duplicates;
+ *   a non-unique copy left from a time with duplicates is rebuilt as unique once they are gone
+ * - idx_prescription_search: searchTokens (multikey) + issuedAt, for prefix medication search
+ * - idx_prescription_rollup_month on prescription_rollups: month + doctorId, for volume trends
+ */
+@Component
+public class PrescriptionIndexInitializer {
+
+    private static final Logger log = LoggerFactory.getLogger(PrescriptionIndexInitializer.class);
+
+    private static final String APPOINTMENT_INDEX = "idx_prescription_appointment";
+    // Dropped: appointmentId + _id duplicated idx_prescription_appointment and doubled its index writes
+    private static final String DROPPED_APPOINTMENT_ID_INDEX = "idx_prescription_appointment_id";
+    private static final String SEARCH_INDEX = "idx_prescription_search";
+    private static final String ROLLUP_MONTH_INDEX = "idx_prescription_rollup_month";
+
+    private final MongoTemplate mongoTemplate;
+
+    public PrescriptionIndexInitializer(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        IndexOperations indexOps = mongoTemplate.indexOps(Prescription.class);
+
+        // Each index on its own, so a conflict on one does not skip the others
+        ensure(APPOINTMENT_INDEX, () -> ensureAppointmentIndex(indexOps));
+
+        ensure(DROPPED_APPOINTMENT_ID_INDEX, () -> {
+            if (exists(indexOps, DROPPED_APPOINTMENT_ID_INDEX)) {
+                indexOps.dropIndex(DROPPED_APPOINTMENT_ID_INDEX);
+                log.info("Dropped redundant index {}", DROPPED_APPOINTMENT_ID_INDEX);
+            }
+        });
+
+        ensure(SEARCH_INDEX, () -> indexOps.ensureIndex(new Index()
+                .on("searchTokens", Sort.Direction.ASC)
+                .on("issuedAt", Sort.Direction.DESC)
+                .named(SEARCH_INDEX)));
+
+        // Clinic-wide volume trends scan rollups by month
+        ensure(ROLLUP_MONTH_INDEX, () -> mongoTemplate.indexOps(PrescriptionRollup.class).ensureIndex(new Index()
+                .on("month", Sort.Direction.ASC)
+                .on("doctorId", Sort.Direction.ASC)
+                .named(ROLLUP_MONTH_INDEX)));
+    }
+
+    private void ensureAppointmentIndex(IndexOperations indexOps) {
+        IndexInfo existing = indexOps.getIndexInfo().stream()
+                .filter(info -> APPOINTMENT_INDEX.equals(info.getName()))
+                .findFirst()
+                .orElse(null);
+        if (existing != null && existing.isUnique()) {
+            // Nothing to check: the index already keeps duplicates out
+            return;
+        }
+        Index appointmentIndex = new Index().on("appointmentId", Sort.Direction.ASC).named(APPOINTMENT_INDEX);
+        if (hasDuplicateAppointmentIds()) {
+            // A unique build would fail; keep lookups indexed and leave the cleanup to an operator
+            log.warn("prescriptions has duplicate appointmentId values; keeping {} without unique", APPOINTMENT_INDEX);
+        } else {
+            appointmentIndex.unique();
+            if (existing != null) {
+                // Same name with other options is a conflict, so the non-unique index goes first.
+                // The outbox upserts on appointmentId rely on the unique one.
+                indexOps.dropIndex(APPOINTMENT_INDEX);
+                log.info("Rebuilding {} as unique", APPOINTMENT_INDEX);
+            }
+        }
+        indexOps.ensureIndex(appointmentIndex);
+    }
+
+    private static boolean exists(IndexOperations indexOps, String name) {
+        return indexOps.getIndexInfo().stream().anyMatch(info -> name.equals(info.getName()));
+    }
+
+    private void ensure(String name, Runnable create) {
+        try {
+            create.run();
+        } catch (Exception e) {
+            // Never block startup on index management; queries still work, just slower
+            log.error("Could not ensure index {}", name, e);
+        }
+    }
+
+    private boolean hasDuplicateAppointmentIds() {
+        Aggregation duplicates = Aggregation.newAggregation(
+                Aggregation.group("appointmentId").count().as("count"),
+                Aggregation.match(Criteria.where("count").gt(1)),
+                Aggregation.limit(1)
+        );
+        return mongoTemplate.aggregate(duplicates, Prescription.class, Document.class)
+                .getUniqueMappedResult() != null;
+    }
+}
@@ -0,0 +1,22 @@
+package com.project.back_end.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares how many SQL statements and Mongo commands one request to this
+ * handler may run, in place of {@code query-budget.default-*}. A negative
+ * value keeps the default. See {@link QueryBudgetInterceptor}.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface QueryBudget {
+
+    int sql() default -1;
+
+    int mongo() default -1;
+}
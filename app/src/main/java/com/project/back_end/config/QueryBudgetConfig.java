@@ -0,0 +1,73 @@
+package com.project.back_end.config;
+
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.lang.NonNull;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Feeds {@link QueryBudgetContext} from both datastores: a Hibernate
+ * StatementInspector sees every SQL statement prepared, and a Mongo
+ * CommandListener every command the blocking driver sends from the
+ * request's threads. {@link QueryBudgetInterceptor} checks the totals per
+ * request.
+ *
+ * With {@code query-budget.enforce=true} (meant for integration test
+ * profiles) a request fails at its first SQL statement over budget. Mongo
+ * overruns are only reported, because the driver swallows listener
+ * exceptions.
+ */
+@Configuration
+public class QueryBudgetConfig implements WebMvcConfigurer {
+
+    private final MeterRegistry meterRegistry;
+    private final int defaultSql;
+    private final int defaultMongo;
+    private final int repeatThreshold;
+    private final boolean enforce;
+
+    public QueryBudgetConfig(MeterRegistry meterRegistry,
+                             @Value("${query-budget.default-sql:20}") int defaultSql,
+                             @Value("${query-budget.default-mongo:10}") int defaultMongo,
+                             @Value("${query-budget.repeat-threshold:5}") int repeatThreshold,
+                             @Value("${query-budget.enforce:false}") boolean enforce) {
+        this.meterRegistry = meterRegistry;
+        this.defaultSql = defaultSql;
+        this.defaultMongo = defaultMongo;
+        this.repeatThreshold = repeatThreshold;
+        this.enforce = enforce;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer queryBudgetStatementInspector() {
+        StatementInspector inspector = sql -> {
+            QueryBudgetContext.recordSql(sql);
+            return sql;
+        };
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, inspector);
+    }
+
+    @Bean
+    public MongoClientSettingsBuilderCustomizer queryBudgetCommandListener() {
+        return builder -> builder.addCommandListener(new CommandListener() {
+            @Override
+            public void commandStarted(CommandStartedEvent event) {
+                QueryBudgetContext.recordMongoCommand();
+            }
+        });
+    }
+
+    @Override
+    public void addInterceptors(@NonNull InterceptorRegistry registry) {
+        registry.addInterceptor(new QueryBudgetInterceptor(meterRegistry, defaultSql, defaultMongo, repeatThreshold, enforce));
+    }
+}
@@ -0,0 +1,134 @@
+package com.project.back_end.config;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Per-request statement counts for the query budget. QueryBudgetInterceptor
+ * binds a {@link Tracker} to the request thread; work handed to other threads
+ * (shard scatter, dashboard fan-out, streamed bodies) carries it along with
+ * {@link #propagate}. Statements run with no tracker bound, such as scheduled
+ * jobs or startup, are not counted.
+ */
+public final class QueryBudgetContext {
+
+    // Distinct SQL strings remembered per request for repeat (N+1) detection
+    private static final int MAX_DISTINCT_STATEMENTS = 256;
+
+    private static final ThreadLocal<Tracker> CURRENT = new ThreadLocal<>();
+
+    private QueryBudgetContext() {
+    }
+
+    public static final class Tracker {
+        private final int sqlBudget;
+        private final int mongoBudget;
+        private final boolean enforce;
+        private final AtomicInteger sql = new AtomicInteger();
+        private final AtomicInteger mongo = new AtomicInteger();
+        private final Map<String, AtomicInteger> statements = new ConcurrentHashMap<>();
+
+        private Tracker(int sqlBudget, int mongoBudget, boolean enforce) {
+            this.sqlBudget = sqlBudget;
+            this.mongoBudget = mongoBudget;
+            this.enforce = enforce;
+        }
+
+        private void recordSql(String statement) {
+            int count = sql.incrementAndGet();
+            AtomicInteger repeats = statements.get(statement);
+            if (repeats == null && statements.size() < MAX_DISTINCT_STATEMENTS) {
+                repeats = statements.computeIfAbsent(statement, s -> new AtomicInteger());
+            }
+            if (repeats != null) {
+                repeats.incrementAndGet();
+            }
+            // Fails at the offending statement, so the stack trace points at the N+1 site
+            if (enforce && count > sqlBudget) {
+                throw new IllegalStateException("Query budget exceeded: SQL statement " + count
+                        + " of " + sqlBudget + " allowed: " + statement);
+            }
+        }
+
+        public int getSqlCount() {
+            return sql.get();
+        }
+
+        public int getMongoCount() {
+            return mongo.get();
+        }
+
+        public int getSqlBudget() {
+            return sqlBudget;
+        }
+
+        public int getMongoBudget() {
+            return mongoBudget;
+        }
+
+        // The statement run most often in this request, or null if none ran
+        public Map.Entry<String, Integer> mostRepeated() {
+            return statements.entrySet().stream()
+                    .max(Comparator.comparingInt(entry -> entry.getValue().get()))
+                    .map(entry -> Map.entry(entry.getKey(), entry.getValue().get()))
+                    .orElse(null);
+        }
+    }
+
+    public static Tracker begin(int sqlBudget, int mongoBudget, boolean enforce) {
+        Tracker tracker = new Tracker(sqlBudget, mongoBudget, enforce);
+        CURRENT.set(tracker);
+        return tracker;
+    }
+
+    public static Tracker current() {
+        return CURRENT.get();
+    }
+
+    // Re-binds a request's tracker, e.g. on its async dispatch
+    public static void attach(Tracker tracker) {
+        CURRENT.set(tracker);
+    }
+
+    public static void detach() {
+        CURRENT.remove();
+    }
+
+    public static void recordSql(String statement) {
+        Tracker tracker = CURRENT.get();
+        if (tracker != null) {
+            tracker.recordSql(statement);
+        }
+    }
+
+    public static void recordMongoCommand() {
+        Tracker tracker = CURRENT.get();
+        if (tracker != null) {
+            tracker.mongo.incrementAndGet();
+        }
+    }
+
+    // Counts what the action runs on another thread against the caller's request
+    public static <T> Supplier<T> propagate(Supplier<T> action) {
+        Tracker tracker = CURRENT.get();
+        if (tracker == null) {
+            return action;
+        }
+        return () -> {
+            Tracker previous = CURRENT.get();
+            CURRENT.set(tracker);
+            try {
+                return action.get();
+            } finally {
+                if (previous == null) {
+                    CURRENT.remove();
+                } else {
+                    CURRENT.set(previous);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,110 @@
+package com.project.back_end.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.lang.NonNull;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import java.util.Map;
+
+/**
+ * Counts the SQL statements and Mongo commands each request runs and checks
+ * them against the handler's {@link QueryBudget} (or the defaults). Counts go
+ * to the query.budget.statements summary. An overrun is logged to
+ * "query.budget" and counted, and so is a statement repeated often enough to
+ * look like an N+1. The endpoint tag is the handler's Controller.method, never
+ * a path value. For async handlers the request is reported once the async
+ * dispatch completes.
+ */
+public class QueryBudgetInterceptor implements AsyncHandlerInterceptor {
+
+    private static final Logger log = LoggerFactory.getLogger("query.budget");
+    private static final String TRACKER_ATTRIBUTE = QueryBudgetInterceptor.class.getName() + ".tracker";
+    private static final int MAX_LOGGED_SQL = 300;
+
+    private final MeterRegistry meterRegistry;
+    private final int defaultSql;
+    private final int defaultMongo;
+    private final int repeatThreshold;
+    private final boolean enforce;
+
+    public QueryBudgetInterceptor(MeterRegistry meterRegistry, int defaultSql, int defaultMongo,
+                                  int repeatThreshold, boolean enforce) {
+        this.meterRegistry = meterRegistry;
+        this.defaultSql = defaultSql;
+        this.defaultMongo = defaultMongo;
+        this.repeatThreshold = repeatThreshold;
+        this.enforce = enforce;
+    }
+
+    @Override
+    public boolean preHandle(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                             @NonNull Object handler) {
+        if (!(handler instanceof HandlerMethod handlerMethod)) {
+            return true;
+        }
+        if (request.getDispatcherType() == DispatcherType.ASYNC
+                && request.getAttribute(TRACKER_ATTRIBUTE) instanceof QueryBudgetContext.Tracker tracker) {
+            QueryBudgetContext.attach(tracker);
+            return true;
+        }
+        QueryBudget budget = handlerMethod.getMethodAnnotation(QueryBudget.class);
+        int sql = budget != null && budget.sql() >= 0 ? budget.sql() : defaultSql;
+        int mongo = budget != null && budget.mongo() >= 0 ? budget.mongo() : defaultMongo;
+        request.setAttribute(TRACKER_ATTRIBUTE, QueryBudgetContext.begin(sql, mongo, enforce));
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                                               @NonNull Object handler) {
+        QueryBudgetContext.detach();
+    }
+
+    @Override
+    public void afterCompletion(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                                @NonNull Object handler, Exception ex) {
+        if (request.isAsyncStarted()) {
+            return;
+        }
+        QueryBudgetContext.detach();
+        // The tracker stays on the request, so tests can check it after the response (see trackerOf)
+        if (handler instanceof HandlerMethod handlerMethod
+                && request.getAttribute(TRACKER_ATTRIBUTE) instanceof QueryBudgetContext.Tracker tracker) {
+            report(handlerMethod.getBeanType().getSimpleName() + "." + handlerMethod.getMethod().getName(), tracker);
+        }
+    }
+
+    // What the request ran against its budget, or null if no handler method served it
+    public static QueryBudgetContext.Tracker trackerOf(HttpServletRequest request) {
+        return request.getAttribute(TRACKER_ATTRIBUTE) instanceof QueryBudgetContext.Tracker tracker ? tracker : null;
+    }
+
+    private void report(String endpoint, QueryBudgetContext.Tracker tracker) {
+        meterRegistry.summary("query.budget.statements", "endpoint", endpoint, "store", "sql").record(tracker.getSqlCount());
+        meterRegistry.summary("query.budget.statements", "endpoint", endpoint, "store", "mongo").record(tracker.getMongoCount());
+
+        if (tracker.getSqlCount() > tracker.getSqlBudget()) {
+            meterRegistry.counter("query.budget.exceeded", "endpoint", endpoint, "store", "sql").increment();
+            log.warn("{} ran {} SQL statements, budget {}", endpoint, tracker.getSqlCount(), tracker.getSqlBudget());
+        }
+        if (tracker.getMongoCount() > tracker.getMongoBudget()) {
+            meterRegistry.counter("query.budget.exceeded", "endpoint", endpoint, "store", "mongo").increment();
+            log.warn("{} ran {} Mongo commands, budget {}", endpoint, tracker.getMongoCount(), tracker.getMongoBudget());
+        }
+
+        Map.Entry<String, Integer> repeated = tracker.mostRepeated();
+        if (repeated != null && repeated.getValue() >= repeatThreshold) {
+            meterRegistry.counter("query.budget.repeated", "endpoint", endpoint).increment();
+            // Hibernate's SQL carries ? placeholders, not values
+            String sql = repeated.getKey();
+            log.warn("{} ran the same statement {} times (likely N+1): {}", endpoint, repeated.getValue(),
+                    sql.length() > MAX_LOGGED_SQL ? sql.substring(0, MAX_LOGGED_SQL) + "..." : sql);
+        }
+    }
+}
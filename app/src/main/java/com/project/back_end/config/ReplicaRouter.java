@@ -0,0 +1,183 @@
+package com.project.back_end.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Chooses between the primary and the read replicas for each new connection.
+ *
+ * - read-only transactions go to the next healthy replica, round robin
+ * - everything else (writes, no transaction) goes to the primary
+ * - a session that just ran a read-write transaction stays on the primary for
+ *   {@code read-your-writes} so it sees its own booking
+ * - an unhealthy or unreachable replica falls back to the primary
+ *
+ * The routing DataSource must sit behind a LazyConnectionDataSourceProxy so the
+ * transaction's read-only flag is known before the connection is picked.
+ */
+public class ReplicaRouter {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaRouter.class);
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final Cache<String, Boolean> recentWriters;
+    private final AtomicInteger next = new AtomicInteger();
+    private final DataSource routingDataSource = new RoutingDataSource();
+
+    private final LongAdder primaryConnections = new LongAdder();
+    private final LongAdder replicaConnections = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+
+    public ReplicaRouter(DataSource primary, Map<String, DataSource> replicas, Duration readYourWrites) {
+        this.primary = primary;
+        this.replicas = replicas.entrySet().stream()
+                .map(entry -> new Replica(entry.getKey(), entry.getValue()))
+                .toList();
+        this.recentWriters = Caffeine.newBuilder()
+                .expireAfterWrite(readYourWrites)
+                .maximumSize(100_000)
+                .build();
+    }
+
+    public DataSource getRoutingDataSource() {
+        return routingDataSource;
+    }
+
+    // Replica pools by name, for metrics; the primary is reached through the routing DataSource
+    public Map<String, DataSource> getReplicaDataSources() {
+        Map<String, DataSource> dataSources = new LinkedHashMap<>();
+        replicas.forEach(replica -> dataSources.put(replica.name, replica.dataSource));
+        return dataSources;
+    }
+
+    public void checkHealth(int timeoutSeconds) {
+        for (Replica replica : replicas) {
+            boolean healthy;
+            try (Connection connection = replica.dataSource.getConnection()) {
+                healthy = connection.isValid(timeoutSeconds);
+            } catch (SQLException e) {
+                healthy = false;
+            }
+            if (healthy != replica.healthy) {
+                log.warn("Read replica {} is now {}", replica.name, healthy ? "healthy" : "unhealthy");
+            }
+            replica.healthy = healthy;
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Boolean> health = new LinkedHashMap<>();
+        replicas.forEach(replica -> health.put(replica.name, replica.healthy));
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("replicas", health);
+        stats.put("primaryConnections", primaryConnections.sum());
+        stats.put("replicaConnections", replicaConnections.sum());
+        stats.put("fallbacksToPrimary", fallbacks.sum());
+        stats.put("sessionsPinnedToPrimary", recentWriters.estimatedSize());
+        return stats;
+    }
+
+    // ------------------- ROUTING -------------------
+
+    private Connection route() throws SQLException {
+        boolean readOnly = TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+        String session = ReplicaRoutingContext.currentSession();
+
+        if (!readOnly) {
+            if (session != null && TransactionSynchronizationManager.isActualTransactionActive()) {
+                recentWriters.put(session, Boolean.TRUE);
+            }
+            return fromPrimary();
+        }
+        if (ReplicaRoutingContext.isPrimaryForced()
+                || (session != null && recentWriters.getIfPresent(session) != null)) {
+            return fromPrimary();
+        }
+
+        Replica replica = nextHealthy();
+        if (replica == null) {
+            fallbacks.increment();
+            return fromPrimary();
+        }
+        try {
+            Connection connection = replica.dataSource.getConnection();
+            replicaConnections.increment();
+            return connection;
+        } catch (SQLException e) {
+            log.warn("Read replica {} unreachable, falling back to primary: {}", replica.name, e.getMessage());
+            replica.healthy = false;
+            fallbacks.increment();
+            return fromPrimary();
+        }
+    }
+
+    private Connection fromPrimary() throws SQLException {
+        primaryConnections.increment();
+        return primary.getConnection();
+    }
+
+    private Replica nextHealthy() {
+        int size = replicas.size();
+        int start = Math.floorMod(next.getAndIncrement(), Math.max(size, 1));
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (replica.healthy) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    private static final class Replica {
+        private final String name;
+        private final DataSource dataSource;
+        private volatile boolean healthy = true;
+
+        private Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+    }
+
+    private final class RoutingDataSource extends AbstractDataSource {
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return route();
+        }
+
+        // Explicit credentials are only ever meant for the primary
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            primaryConnections.increment();
+            return primary.getConnection(username, password);
+        }
+
+        // Unwraps to the primary pool, so pool metrics and health see the primary's Hikari settings
+        @Override
+        public <T> T unwrap(Class<T> iface) throws SQLException {
+            return iface.isInstance(this) ? iface.cast(this) : primary.unwrap(iface);
+        }
+
+        @Override
+        public boolean isWrapperFor(Class<?> iface) throws SQLException {
+            return iface.isInstance(this) || primary.isWrapperFor(iface);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.project.back_end.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.lang.NonNull;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Read-replica routing, active only when {@code datasource.replicas.urls} is set.
+ * Replaces Boot's DataSource with a lazy proxy over {@link ReplicaRouter}; the
+ * primary keeps its {@code spring.datasource.*} settings.
+ *
+ * Inherited repository reads (findById, findAll, ...) are read-only
+ * transactions by default, so a bare call goes to a replica; declared query
+ * methods have no transaction of their own and only reach a replica inside a
+ * read-only one. Lookups that must see a row written
+ * moments ago by a request without a session (login right after signup,
+ * token checks) run inside {@link ReplicaRoutingContext#onPrimary}.
+ */
+@Configuration
+@ConditionalOnExpression("!'${datasource.replicas.urls:}'.isBlank()")
+public class ReplicaRoutingConfig implements WebMvcConfigurer {
+
+    @Value("${datasource.replicas.health-check-timeout-seconds:1}")
+    private int healthCheckTimeoutSeconds;
+
+    // A provider, since the router is defined below in this same class
+    private final ObjectProvider<ReplicaRouter> replicaRouter;
+
+    public ReplicaRoutingConfig(ObjectProvider<ReplicaRouter> replicaRouter) {
+        this.replicaRouter = replicaRouter;
+    }
+
+    @Bean
+    public ReplicaRouter replicaRouter(DataSourceProperties properties, Environment environment,
+                                       @Value("${datasource.replicas.urls}") String[] urls,
+                                       @Value("${datasource.replicas.pool-size:10}") int poolSize,
+                                       @Value("${datasource.replicas.read-your-writes-ms:5000}") long readYourWritesMs) {
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+
+        String username = environment.getProperty("datasource.replicas.username", properties.getUsername());
+        String password = environment.getProperty("datasource.replicas.password", properties.getPassword());
+        // A replica that is down must fail fast so the read falls back to the primary, not hold it for
+        // Hikari's default 30 s; and it must not stop the application from starting
+        long connectionTimeoutMs = Math.max(250, healthCheckTimeoutSeconds * 1000L);
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (int i = 0; i < urls.length; i++) {
+            HikariDataSource replica = new HikariDataSource();
+            replica.setPoolName("replica-" + (i + 1));
+            replica.setJdbcUrl(urls[i].trim());
+            replica.setUsername(username);
+            replica.setPassword(password);
+            replica.setMaximumPoolSize(poolSize);
+            replica.setReadOnly(true);
+            replica.setConnectionTimeout(connectionTimeoutMs);
+            replica.setValidationTimeout(connectionTimeoutMs);
+            replica.setInitializationFailTimeout(-1);
+            replicas.put(replica.getPoolName(), replica);
+        }
+
+        return new ReplicaRouter(primary, replicas, Duration.ofMillis(readYourWritesMs));
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRouter replicaRouter) {
+        return new LazyConnectionDataSourceProxy(replicaRouter.getRoutingDataSource());
+    }
+
+    @Scheduled(fixedDelayString = "${datasource.replicas.health-check-interval-ms:5000}")
+    public void checkReplicas() {
+        replicaRouter.ifAvailable(router -> router.checkHealth(healthCheckTimeoutSeconds));
+    }
+
+    // The request's token identifies the session for read-your-writes
+    @Override
+    public void addInterceptors(@NonNull InterceptorRegistry registry) {
+        registry.addInterceptor(new HandlerInterceptor() {
+            @Override
+            public boolean preHandle(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                                     @NonNull Object handler) {
+                Object variables = request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+                if (variables instanceof Map<?, ?> map && map.get("token") instanceof String token) {
+                    ReplicaRoutingContext.setSession(token);
+                }
+                return true;
+            }
+
+            @Override
+            public void afterCompletion(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                                        @NonNull Object handler, Exception ex) {
+                ReplicaRoutingContext.clearSession();
+            }
+        });
+    }
+}
@@ -0,0 +1,66 @@
+package com.project.back_end.config;
+
+import java.util.function.Supplier;
+
+/**
+ * Per-thread inputs to read-replica routing: the session (the request's auth
+ * token) for read-your-writes, and an override that keeps reads on the primary
+ * for checks that must not see replica lag. Both are no-ops without replicas.
+ */
+public final class ReplicaRoutingContext {
+
+    private static final ThreadLocal<String> SESSION = new ThreadLocal<>();
+    private static final ThreadLocal<Integer> PRIMARY_DEPTH = ThreadLocal.withInitial(() -> 0);
+
+    private ReplicaRoutingContext() {
+    }
+
+    public static String currentSession() {
+        return SESSION.get();
+    }
+
+    public static void setSession(String session) {
+        SESSION.set(session);
+    }
+
+    public static void clearSession() {
+        SESSION.remove();
+    }
+
+    public static boolean isPrimaryForced() {
+        return PRIMARY_DEPTH.get() > 0;
+    }
+
+    // Runs the action with all reads on the primary (e.g. idempotency lookups, outbox polling)
+    public static <T> T onPrimary(Supplier<T> action) {
+        PRIMARY_DEPTH.set(PRIMARY_DEPTH.get() + 1);
+        try {
+            return action.get();
+        } finally {
+            int depth = PRIMARY_DEPTH.get() - 1;
+            if (depth == 0) {
+                PRIMARY_DEPTH.remove();
+            } else {
+                PRIMARY_DEPTH.set(depth);
+            }
+        }
+    }
+
+    // Carries the caller's session over to work handed to another thread
+    public static <T> Supplier<T> propagate(Supplier<T> action) {
+        String session = SESSION.get();
+        return () -> {
+            String previous = SESSION.get();
+            SESSION.set(session);
+            try {
+                return action.get();
+            } finally {
+                if (previous == null) {
+                    SESSION.remove();
+                } else {
+                    SESSION.set(previous);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,60 @@
+package com.project.back_end.config;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.function.Supplier;
+
+/**
+ * The appointment shard the current thread's connections should come from;
+ * null means the default shard. The DataSource is lazy, so a shard bound at the
+ * top of a transaction applies to that transaction's connection.
+ */
+public final class ShardContext {
+
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    public static String current() {
+        return CURRENT.get();
+    }
+
+    // Runs the action with connections from the given shard; each repository call opens its own transaction
+    public static <T> T onShard(String shard, Supplier<T> action) {
+        String previous = CURRENT.get();
+        CURRENT.set(shard);
+        try {
+            return action.get();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    /**
+     * Routes the rest of the current transaction to {@code shard}. Must run before
+     * the transaction's first statement, since that is when the connection is taken.
+     */
+    public static void bindToTransaction(String shard) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("No transaction to bind appointment shard " + shard + " to");
+        }
+        String previous = CURRENT.get();
+        CURRENT.set(shard);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                restore(previous);
+            }
+        });
+    }
+
+    private static void restore(String previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+}
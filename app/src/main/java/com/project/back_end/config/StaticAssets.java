@@ -0,0 +1,86 @@
+package com.project.back_end.config;
+
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+
+/**
+ * Content hash of everything under static/js and static/assets, used as a URL
+ * prefix: /v-{hash}/js/render.js is served from static/js/render.js with a
+ * far-future immutable Cache-Control.
+ *
+ * One hash for the whole tree (rather than one per file) keeps relative links
+ * correct: ES module imports and CSS url()s resolve against the prefixed URL,
+ * so they pick up the version without being rewritten, and a change to any
+ * file moves every URL at once instead of leaving a cached importer pointing
+ * at a stale dependency.
+ */
+@Component
+public class StaticAssets {
+
+    private static final String[] HASHED = {"classpath:/static/js/**", "classpath:/static/assets/**"};
+    private static final int HASH_CHARS = 12;
+
+    private final String prefix;
+
+    public StaticAssets() {
+        this.prefix = "/v-" + hashContents();
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+
+    // "/js/render.js" -> "/v-{hash}/js/render.js"
+    public String url(String path) {
+        return prefix + (path.startsWith("/") ? path : "/" + path);
+    }
+
+    private static String hashContents() {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+            for (String pattern : HASHED) {
+                Resource[] resources = resolver.getResources(pattern);
+                Arrays.sort(resources, Comparator.comparing(StaticAssets::pathOf));
+                for (Resource resource : resources) {
+                    String path = pathOf(resource);
+                    // Precompressed variants are derived from the originals
+                    if (!resource.isReadable() || path.endsWith(".gz") || path.endsWith(".br")) {
+                        continue;
+                    }
+                    digest.update(path.getBytes(StandardCharsets.UTF_8));
+                    try (InputStream in = resource.getInputStream()) {
+                        digest.update(StreamUtils.copyToByteArray(in));
+                    }
+                }
+            }
+            return HexFormat.of().formatHex(digest.digest()).substring(0, HASH_CHARS);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Static assets could not be hashed", e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String pathOf(Resource resource) {
+        try {
+            String url = resource.getURL().toString();
+            int index = url.lastIndexOf("/static/");
+            return index >= 0 ? url.substring(index) : url;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
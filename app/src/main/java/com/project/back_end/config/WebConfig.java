@@ -2,15 +2,27 @@ package com.project.back_end.config;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
 import org.springframework.lang.NonNull;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.resource.EncodedResourceResolver;
+import org.springframework.web.servlet.resource.PathResourceResolver;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import java.time.Duration;
+
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
 
+    private final StaticAssets staticAssets;
+
+    public WebConfig(StaticAssets staticAssets) {
+        this.staticAssets = staticAssets;
+    }
+
     @Override
     public void addCorsMappings(@NonNull CorsRegistry registry) {
         registry.addMapping("/**")
@@ -19,6 +31,42 @@ public class WebConfig implements WebMvcConfigurer {
                 .allowedHeaders("*");
     }
 
+    /**
+     * Versioned assets (/v-{hash}/js/..., /v-{hash}/assets/...) never change under
+     * their URL, so browsers keep them for a year without revalidating. The
+     * .br/.gz files generated at build time are served as-is when accepted.
+     *
+     * The HTML entry points are revalidated on every load and have their asset
+     * links rewritten to the current prefix. Anything else (e.g. images that
+     * scripts reference by plain path) stays on Boot's default handler.
+     */
+    @Override
+    public void addResourceHandlers(@NonNull ResourceHandlerRegistry registry) {
+        registry.addResourceHandler(staticAssets.getPrefix() + "/js/**")
+                .addResourceLocations("classpath:/static/js/")
+                .setCacheControl(CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable())
+                .resourceChain(true)
+                .addResolver(new EncodedResourceResolver())
+                .addResolver(new PathResourceResolver());
+        registry.addResourceHandler(staticAssets.getPrefix() + "/assets/**")
+                .addResourceLocations("classpath:/static/assets/")
+                .setCacheControl(CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable())
+                .resourceChain(true)
+                .addResolver(new EncodedResourceResolver())
+                .addResolver(new PathResourceResolver());
+
+        registry.addResourceHandler("/index.html")
+                .addResourceLocations("classpath:/static/")
+                .setCacheControl(CacheControl.noCache())
+                .resourceChain(true)
+                .addTransformer(new HtmlAssetLinkTransformer(staticAssets));
+        registry.addResourceHandler("/pages/**")
+                .addResourceLocations("classpath:/static/pages/")
+                .setCacheControl(CacheControl.noCache())
+                .resourceChain(true)
+                .addTransformer(new HtmlAssetLinkTransformer(staticAssets));
+    }
+
     // Add this
     @Bean
     public PasswordEncoder passwordEncoder() {
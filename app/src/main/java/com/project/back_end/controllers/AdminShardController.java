@@ -0,0 +1,93 @@
+package com.project.back_end.controllers;
+
+import com.project.back_end.services.AppointmentShardMigrationService;
+import com.project.back_end.services.AppointmentShardRouter;
+import com.project.back_end.services.ShardReplicationService;
+import com.project.back_end.services.TokenService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("${api.path}admin/shards")
+public class AdminShardController {
+
+    private final AppointmentShardRouter appointmentShardRouter;
+    private final AppointmentShardMigrationService appointmentShardMigrationService;
+    private final ShardReplicationService shardReplicationService;
+    private final TokenService tokenService;
+
+    public AdminShardController(AppointmentShardRouter appointmentShardRouter,
+                                AppointmentShardMigrationService appointmentShardMigrationService,
+                                ShardReplicationService shardReplicationService,
+                                TokenService tokenService) {
+        this.appointmentShardRouter = appointmentShardRouter;
+        this.appointmentShardMigrationService = appointmentShardMigrationService;
+        this.shardReplicationService = shardReplicationService;
+        this.tokenService = tokenService;
+    }
+
+    // Shards with their appointment counts, the explicit shard map and the last move (Admin only)
+    @GetMapping("/{token:.+}")
+    public ResponseEntity<Map<String, Object>> getShards(@PathVariable String token) {
+        if (!tokenService.validateToken(token, "admin")) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(Map.of("error", "Invalid admin token"));
+        }
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("shards", appointmentShardMigrationService.getShardSizes());
+        response.put("shardMap", appointmentShardRouter.getShardMap().values());
+        response.put("migrationRunning", appointmentShardMigrationService.isRunning());
+        response.put("lastMigration", appointmentShardMigrationService.getLastRun());
+        response.put("replicationRunning", shardReplicationService.isRunning());
+        response.put("lastReplication", shardReplicationService.getLastRun());
+        return ResponseEntity.ok(response);
+    }
+
+    // Move all of a doctor's appointments to another shard in the background (Admin only)
+    @PostMapping("/migrate/{doctorId}/{shard}/{token:.+}")
+    public ResponseEntity<Map<String, Object>> migrateDoctor(@PathVariable Long doctorId,
+                                                             @PathVariable String shard,
+                                                             @PathVariable String token) {
+        if (!tokenService.validateToken(token, "admin")) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(Map.of("error", "Invalid admin token"));
+        }
+        if (!appointmentShardRouter.getShardNames().contains(shard)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Unknown shard"));
+        }
+        if (appointmentShardMigrationService.isRunning()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("error", "A shard migration is already running"));
+        }
+
+        appointmentShardMigrationService.migrate(doctorId, shard);
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(Map.of("message", "Shard migration started", "doctorId", doctorId, "shard", shard));
+    }
+
+    // Copy every doctor and patient from shard-0 to the other shards in the background,
+    // e.g. after adding a shard (Admin only)
+    @PostMapping("/replicate/{token:.+}")
+    public ResponseEntity<Map<String, Object>> replicate(@PathVariable String token) {
+        if (!tokenService.validateToken(token, "admin")) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(Map.of("error", "Invalid admin token"));
+        }
+        if (!appointmentShardRouter.isSharded()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Appointments are not sharded"));
+        }
+        if (shardReplicationService.isRunning()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("error", "A shard copy is already running"));
+        }
+
+        shardReplicationService.replicateAll();
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(Map.of("message", "Copying doctors and patients to every shard"));
+    }
+}
@@ -0,0 +1,223 @@
+package com.project.back_end.controllers;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.project.back_end.config.Bulkhead;
+import com.project.back_end.config.BulkheadRegistry;
+import com.project.back_end.config.ReplicaRouter;
+import com.project.back_end.services.AuditService;
+import com.project.back_end.services.EntityCacheService;
+import com.project.back_end.services.PrescriptionRollupService;
+import com.project.back_end.services.PrescriptionService;
+import com.project.back_end.services.TokenService;
+import com.project.back_end.services.VirtualThreadPinningMonitor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.YearMonth;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("${api.path}admin/stats")
+public class AdminStatsController {
+
+    private static final int MAX_TREND_MONTHS = 120;
+
+    private final PrescriptionService prescriptionService;
+    private final PrescriptionRollupService prescriptionRollupService;
+    private final TokenService tokenService;
+    private final EntityCacheService entityCacheService;
+    private final VirtualThreadPinningMonitor pinningMonitor;
+    private final BulkheadRegistry bulkheadRegistry;
+    private final ObjectProvider<ReplicaRouter> replicaRouter;
+    private final AuditService auditService;
+
+    public AdminStatsController(PrescriptionService prescriptionService,
+                                PrescriptionRollupService prescriptionRollupService,
+                                TokenService tokenService,
+                                EntityCacheService entityCacheService,
+                                VirtualThreadPinningMonitor pinningMonitor,
+                                BulkheadRegistry bulkheadRegistry,
+                                ObjectProvider<ReplicaRouter> replicaRouter,
+                                AuditService auditService) {
+        this.prescriptionService = prescriptionService;
+        this.prescriptionRollupService = prescriptionRollupService;
+        this.tokenService = tokenService;
+        this.entityCacheService = entityCacheService;
+        this.pinningMonitor = pinningMonitor;
+        this.bulkheadRegistry = bulkheadRegistry;
+        this.replicaRouter = replicaRouter;
+        this.auditService = auditService;
+    }
+
+    // Hit rate and evictions of the prescription read-through cache (Admin only)
+    @GetMapping("/prescription-cache/{token:.+}")
+    public ResponseEntity<Map<String, Object>> getPrescriptionCacheStats(@PathVariable String token) {
+        if (!tokenService.validateToken(token, "admin")) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(Map.of("error", "Invalid admin token"));
+        }
+
+        CacheStats stats = prescriptionService.getCacheStats();
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("size", prescriptionService.getCacheSize());
+        response.put("hitCount", stats.hitCount());
+        response.put("missCount", stats.missCount());
+        response.put("hitRate", stats.hitRate());
+        response.put("evictionCount", stats.evictionCount());
+        response.put("evictionWeight", stats.evictionWeight());
+        response.put("averageLoadPenaltyNanos", stats.averageLoadPenalty());
+        return ResponseEntity.ok(response);
+    }
+
+    // Hibernate second-level and query cache regions for Doctor, Patient and Admin (Admin only)
+    @GetMapping("/entity-cache/{token:.+}")
+    public ResponseEntity<Map<String, Object>> getEntityCacheStats(@PathVariable String token) {
+        if (!tokenService.validateToken(token, "admin")) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(Map.of("error", "Invalid admin token"));
+        }
+        return ResponseEntity.ok(entityCacheService.getStats());
+    }
+
+    // Drop one second-level cache region, e.g. after editing rows directly in the database (Admin only)
+    @DeleteMapping("/entity-cache/{region}/{token:.+}")
+    public ResponseEntity<Map<String, Object>> evictEntityCacheRegion(@PathVariable String region,
+                                                                      @PathVariable String token) {
+        if (!tokenService.validateToken(token, "admin")) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(Map.of("error", "Invalid admin token"));
+        }
+        if (!entityCacheService.evictRegion(region)) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", "Unknown cache region"));
+        }
+        return ResponseEntity.ok(Map.of("message", "Cache region evicted", "region", region));
+    }
+
+    // Virtual-thread mode, carrier pinning seen so far, and JDBC bulkhead occupancy (Admin only)
+    @GetMapping("/threads/{token:.+}")
+    public ResponseEntity<Map<String, Object>> getThreadStats(@PathVariable String token) {
+        if (!tokenService.validateToken(token, "admin")) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(Map.of("error", "Invalid admin token"));
+        }
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("virtualThreads", pinningMonitor.isEnabled());
+        response.put("pinning", pinningMonitor.getStats());
+        Bulkhead jdbc = bulkheadRegistry.get(BulkheadRegistry.JDBC);
+        response.put("jdbcBulkhead", Map.of(
+                "maxConcurrent", jdbc.getMaxConcurrent(),
+                "inUse", jdbc.getInUse(),
+                "waiting", jdbc.getWaiting(),
+                "rejected", jdbc.getRejectedCount()
+        ));
+        return ResponseEntity.ok(response);
+    }
+
+    // Occupancy, queue depth and rejections of every datastore and endpoint-group bulkhead (Admin only)
+    @GetMapping("/bulkheads/{token:.+}")
+    public ResponseEntity<Map<String, Object>> getBulkheadStats(@PathVariable String token) {
+        if (!tokenService.validateToken(token, "admin")) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(Map.of("error", "Invalid admin token"));
+        }
+        return ResponseEntity.ok(bulkheadRegistry.getStats());
+    }
+
+    // Replica health and how connections were routed; empty when no replicas are configured (Admin only)
+    @GetMapping("/replicas/{token:.+}")
+    public ResponseEntity<Map<String, Object>> getReplicaStats(@PathVariable String token) {
+        if (!tokenService.validateToken(token, "admin")) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(Map.of("error", "Invalid admin token"));
+        }
+        ReplicaRouter router = replicaRouter.getIfAvailable();
+        return ResponseEntity.ok(router != null ? router.getStats() : Map.of("replicas", Map.of()));
+    }
+
+    // Audit pipeline: buffered, written and overflowed events (Admin only)
+    @GetMapping("/audit/{token:.+}")
+    public ResponseEntity<Map<String, Object>> getAuditStats(@PathVariable String token) {
+        if (!tokenService.validateToken(token, "admin")) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(Map.of("error", "Invalid admin token"));
+        }
+        return ResponseEntity.ok(auditService.getStats());
+    }
+
+    // Top medications of one doctor in one month (yyyy-MM), read from the rollups only (Admin only)
+    @GetMapping("/medications/{doctorId}/{month}/{token:.+}")
+    public ResponseEntity<Map<String, Object>> getTopMedications(
+            @PathVariable Long doctorId,
+            @PathVariable String month,
+            @PathVariable String token,
+            @RequestParam(defaultValue = "10") int limit) {
+        if (!tokenService.validateToken(token, "admin")) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(Map.of("error", "Invalid admin token"));
+        }
+
+        YearMonth yearMonth;
+        try {
+            yearMonth = YearMonth.parse(month);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Invalid month format"));
+        }
+
+        int boundedLimit = Math.max(1, Math.min(limit, 100));
+        return ResponseEntity.ok(Map.of(
+                "doctorId", doctorId,
+                "month", yearMonth.toString(),
+                "medications", prescriptionRollupService.getTopMedications(doctorId, yearMonth, boundedLimit)
+        ));
+    }
+
+    // Monthly prescribing volume between two months (yyyy-MM), optionally for one doctor (Admin only)
+    @GetMapping("/prescribing-volume/{token:.+}")
+    public ResponseEntity<Map<String, Object>> getPrescribingVolume(
+            @PathVariable String token,
+            @RequestParam String from,
+            @RequestParam String to,
+            @RequestParam(required = false) Long doctorId) {
+        if (!tokenService.validateToken(token, "admin")) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(Map.of("error", "Invalid admin token"));
+        }
+
+        YearMonth fromMonth;
+        YearMonth toMonth;
+        try {
+            fromMonth = YearMonth.parse(from);
+            toMonth = YearMonth.parse(to);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Invalid month format"));
+        }
+        if (toMonth.isBefore(fromMonth) || fromMonth.plusMonths(MAX_TREND_MONTHS).isBefore(toMonth)) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "Range must be ascending and at most " + MAX_TREND_MONTHS + " months"));
+        }
+
+        return ResponseEntity.ok(Map.of("volume", prescriptionRollupService.getVolumeTrend(doctorId, fromMonth, toMonth)));
+    }
+
+    // Recompute all rollups from the prescriptions collection in the background (Admin only)
+    @PostMapping("/rollups/rebuild/{token:.+}")
+    public ResponseEntity<Map<String, Object>> rebuildRollups(@PathVariable String token) {
+        if (!tokenService.validateToken(token, "admin")) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(Map.of("error", "Invalid admin token"));
+        }
+        if (prescriptionRollupService.isRebuilding()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("error", "Rollup rebuild already running"));
+        }
+
+        prescriptionRollupService.rebuild();
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(Map.of("message", "Rollup rebuild started"));
+    }
+}
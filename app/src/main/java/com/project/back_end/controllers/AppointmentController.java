@@ -1,15 +1,21 @@
 package com.project.back_end.controllers;
 
+import com.project.back_end.DTO.AppointmentResponse;
+import com.project.back_end.config.QueryBudget;
 import com.project.back_end.models.Appointment;
+import com.project.back_end.services.AppointmentFieldSet;
+import com.project.back_end.services.AppointmentProjectionService;
 import com.project.back_end.services.AppointmentService;
+import com.project.back_end.services.IdempotencyService;
+import com.project.back_end.services.JsonStreamWriter;
 import com.project.back_end.services.TokenService;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDate;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -18,54 +24,81 @@ public class AppointmentController {
 
     private final AppointmentService appointmentService;
     private final TokenService tokenService;
-
-    public AppointmentController(AppointmentService appointmentService, TokenService tokenService) {
+    private final IdempotencyService idempotencyService;
+    private final JsonStreamWriter jsonStreamWriter;
+    private final AppointmentProjectionService appointmentProjectionService;
+
+    public AppointmentController(AppointmentService appointmentService,
+                                 TokenService tokenService,
+                                 IdempotencyService idempotencyService,
+                                 JsonStreamWriter jsonStreamWriter,
+                                 AppointmentProjectionService appointmentProjectionService) {
         this.appointmentService = appointmentService;
         this.tokenService = tokenService;
+        this.idempotencyService = idempotencyService;
+        this.jsonStreamWriter = jsonStreamWriter;
+        this.appointmentProjectionService = appointmentProjectionService;
     }
 
     // 1. Get Appointments (Doctor only)
+    // Streamed straight from the query to the response; see JsonStreamWriter
+    // With ?fields=... only the selected flat fields (AppointmentDTO names) are queried and returned
     @GetMapping("/{date}/{patientName}/{token:.+}")
-    public ResponseEntity<Map<String, Object>> getAppointments(
+    @QueryBudget(sql = 4, mongo = 0)
+    public ResponseEntity<StreamingResponseBody> getAppointments(
             @PathVariable String date,
             @PathVariable String patientName,
-            @PathVariable String token
+            @PathVariable String token,
+            @RequestParam(required = false) String fields
     ) {
         if (!tokenService.validateToken(token, "doctor")) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
-                    .body(Map.of("error", "Invalid or expired token"));
+            return jsonStreamWriter.respond(HttpStatus.UNAUTHORIZED, Map.of("error", "Invalid or expired token"));
         }
 
         LocalDate localDate;
         try {
             localDate = LocalDate.parse(date);
         } catch (Exception e) {
-            return ResponseEntity.badRequest().body(Map.of("error", "Invalid date format"));
+            return jsonStreamWriter.respond(HttpStatus.BAD_REQUEST, Map.of("error", "Invalid date format"));
         }
 
         Long doctorId = tokenService.extractDoctorId(token);
-        List<Appointment> appointments = appointmentService.getAppointments(doctorId, patientName, localDate);
-
-        return ResponseEntity.ok(Map.of("appointments", appointments));
+        if (fields != null && !fields.isBlank()) {
+            AppointmentFieldSet fieldSet;
+            try {
+                fieldSet = appointmentProjectionService.compile(fields);
+            } catch (IllegalArgumentException e) {
+                return jsonStreamWriter.respond(HttpStatus.BAD_REQUEST, Map.of("error", e.getMessage()));
+            }
+            return jsonStreamWriter.respond(HttpStatus.OK, Map.of("appointments",
+                    appointmentProjectionService.getDoctorDay(doctorId, patientName, localDate, fieldSet)));
+        }
+        return jsonStreamWriter.respond(out ->
+                appointmentService.writeAppointments(doctorId, patientName, localDate, out));
     }
 
     // 2. Book Appointment (Patient only)
+    // A retried request with the same Idempotency-Key gets the first response back
     @PostMapping("/{token:.+}")
     public ResponseEntity<?> bookAppointment(
             @PathVariable String token,
-            @RequestBody Appointment appointment
+            @RequestBody Appointment appointment,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey
     ) {
         if (!tokenService.validateToken(token, "patient")) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(Map.of("error", "Invalid or expired token"));
         }
 
-        if (!appointmentService.validateAppointment(appointment)) {
-            return ResponseEntity.badRequest().body(Map.of("error", "Invalid appointment details"));
-        }
+        Long patientId = tokenService.extractUserId(token);
+        return idempotencyService.execute("appointments", patientId, idempotencyKey, appointment, () -> {
+            if (!appointmentService.validateAppointment(appointment)) {
+                return ResponseEntity.badRequest().body(Map.of("error", "Invalid appointment details"));
+            }
 
-        Appointment saved = appointmentService.bookAppointment(appointment);
-        return ResponseEntity.status(HttpStatus.CREATED).body(saved);
+            Appointment saved = appointmentService.bookAppointment(appointment);
+            return ResponseEntity.status(HttpStatus.CREATED).body(AppointmentResponse.from(saved));
+        });
     }
 
     // 3. Update Appointment (Patient only)
@@ -79,10 +112,15 @@ public class AppointmentController {
                     .body(Map.of("error", "Invalid or expired token"));
         }
 
-        Appointment updated = appointmentService.updateAppointment(appointment);
+        Long patientId = tokenService.extractUserId(token);
+        int updated = appointmentService.updateAppointment(appointment, patientId);
+        if (updated == 0) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("message", "Appointment not found or no longer scheduled"));
+        }
         return ResponseEntity.ok(Map.of(
                 "message", "Appointment updated successfully",
-                "id", updated.getId().toString()
+                "id", appointment.getId().toString()
         ));
     }
 
@@ -97,7 +135,6 @@ public class AppointmentController {
                     .body(Map.of("error", "Invalid or expired token"));
         }
 
-        appointmentService.cancelAppointment(id, token);
-        return ResponseEntity.ok(Map.of("message", "Appointment cancelled successfully", "id", id.toString()));
+        return appointmentService.cancelAppointment(id, token);
     }
 }
\ No newline at end of file
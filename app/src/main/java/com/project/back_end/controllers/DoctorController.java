@@ -1,14 +1,18 @@
 package com.project.back_end.controllers;
 
+import com.project.back_end.DTO.DoctorResponse;
 import com.project.back_end.models.Doctor;
 import com.project.back_end.DTO.Login;
+import com.project.back_end.config.QueryBudget;
 import com.project.back_end.services.DoctorService;
+import com.project.back_end.services.JsonStreamWriter;
 import com.project.back_end.services.TokenService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
@@ -21,15 +25,18 @@ public class DoctorController {
 
     private final DoctorService doctorService;
     private final TokenService tokenService;
+    private final JsonStreamWriter jsonStreamWriter;
 
     @Autowired
-    public DoctorController(DoctorService doctorService, TokenService tokenService) {
+    public DoctorController(DoctorService doctorService, TokenService tokenService, JsonStreamWriter jsonStreamWriter) {
         this.doctorService = doctorService;
         this.tokenService = tokenService;
+        this.jsonStreamWriter = jsonStreamWriter;
     }
 
     // 1. Get Doctor Availability
     @GetMapping("/availability/{user}/{doctorId}/{date}/{token:.+}")
+    @QueryBudget(sql = 3, mongo = 0)
     public ResponseEntity<?> getDoctorAvailability(
             @PathVariable String user,
             @PathVariable Long doctorId,
@@ -60,10 +67,11 @@ public class DoctorController {
     }
 
     // 2. Get List of Doctors
+    // Streamed straight from the query to the response; see JsonStreamWriter
     @GetMapping
-    public ResponseEntity<Map<String, Object>> getDoctors() {
-        List<Doctor> doctors = doctorService.getDoctors();
-        return ResponseEntity.ok(Map.of("doctors", doctors));
+    @QueryBudget(sql = 2, mongo = 0)
+    public ResponseEntity<StreamingResponseBody> getDoctors() {
+        return jsonStreamWriter.respond(doctorService::writeDoctors);
     }
 
     // 3. Add New Doctor (Admin only)
@@ -170,7 +178,7 @@ public class DoctorController {
             @PathVariable String time,
             @PathVariable String speciality) {
 
-        List<Doctor> filtered = doctorService.filterDoctorsByNameSpecialtyAndTime(name, speciality, time);
+        List<DoctorResponse> filtered = doctorService.filterDoctorsByNameSpecialtyAndTime(name, speciality, time);
         return ResponseEntity.ok(Map.of("doctors", filtered));
     }
 }
\ No newline at end of file
@@ -3,6 +3,9 @@ package com.project.back_end.controllers;
 import com.project.back_end.DTO.AppointmentDTO;
 import com.project.back_end.DTO.Login;
 import com.project.back_end.models.Patient;
+import com.project.back_end.services.AppointmentFieldSet;
+import com.project.back_end.services.AppointmentProjectionService;
+import com.project.back_end.services.PatientDashboardService;
 import com.project.back_end.services.PatientService;
 import com.project.back_end.services.TokenService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -11,6 +14,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
 
@@ -21,11 +25,17 @@ public class PatientController {
 
     private final PatientService patientService;
     private final TokenService tokenService;
+    private final PatientDashboardService patientDashboardService;
+    private final AppointmentProjectionService appointmentProjectionService;
 
     @Autowired
-    public PatientController(PatientService patientService, TokenService tokenService) {
+    public PatientController(PatientService patientService, TokenService tokenService,
+                             PatientDashboardService patientDashboardService,
+                             AppointmentProjectionService appointmentProjectionService) {
         this.patientService = patientService;
         this.tokenService = tokenService;
+        this.patientDashboardService = patientDashboardService;
+        this.appointmentProjectionService = appointmentProjectionService;
     }
 
     // JSON: ResponseEntity
@@ -35,6 +45,19 @@ public class PatientController {
         return patientService.getPatientDetails(token);
     }
 
+    // JSON: ResponseEntity
+    // Patient details and appointment history in one round trip.
+    // Sections that fail or time out come back null and are listed under "errors".
+    @GetMapping("/dashboard/{token:.+}")
+    public ResponseEntity<Map<String, Object>> getDashboard(@PathVariable String token) {
+        if (!tokenService.validateToken(token, "patient")) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(Map.of("error", "Invalid or expired token"));
+        }
+        Long patientId = tokenService.extractUserId(token);
+        return ResponseEntity.ok(patientDashboardService.getDashboard(patientId, token));
+    }
+
     // View: String (redirect/view name)
     @GetMapping("/login")
     public String patientLoginPage() {
@@ -66,14 +89,39 @@ public class PatientController {
 
     // JSON: ResponseEntity
     // Get appointments by patient ID and token
+    // Optional ?from=yyyy-MM-dd limits the history; older ranges also read the archive
+    // Optional ?fields=id,doctorId,... returns (and queries) only those appointment fields
     @GetMapping("/{id}/{token:.+}")
-    public ResponseEntity<?> getPatientAppointments(@PathVariable Long id, @PathVariable String token) {
+    public ResponseEntity<?> getPatientAppointments(@PathVariable Long id,
+                                                    @PathVariable String token,
+                                                    @RequestParam(required = false) String from,
+                                                    @RequestParam(required = false) String fields) {
         if (!tokenService.validateToken(token, "patient")) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(Map.of("error", "Invalid or expired token"));
         }
+        LocalDate fromDate = null;
+        if (from != null && !from.isBlank()) {
+            try {
+                fromDate = LocalDate.parse(from);
+            } catch (Exception e) {
+                return ResponseEntity.badRequest().body(Map.of("error", "Invalid date format"));
+            }
+        }
+        AppointmentFieldSet fieldSet = null;
+        if (fields != null && !fields.isBlank()) {
+            try {
+                fieldSet = appointmentProjectionService.compile(fields);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+            }
+        }
         try {
-            List<AppointmentDTO> appointments = patientService.getPatientAppointment(id, token);
+            if (fieldSet != null) {
+                return ResponseEntity.ok(Map.of("appointments",
+                        patientService.getPatientAppointment(id, token, fromDate, fieldSet)));
+            }
+            List<AppointmentDTO> appointments = patientService.getPatientAppointment(id, token, fromDate);
             return ResponseEntity.ok(Map.of("appointments", appointments));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -1,44 +1,57 @@
 package com.project.back_end.controllers;
 
-import com.project.back_end.models.Appointment;
 import com.project.back_end.models.Prescription;
 import com.project.back_end.services.PrescriptionService;
 import com.project.back_end.services.TokenService;
 import com.project.back_end.services.AppointmentService;
+import com.project.back_end.services.IdempotencyService;
+import com.project.back_end.services.PrescriptionOutboxService;
+import com.project.back_end.services.PrescriptionSearchService;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
-import com.project.back_end.repo.AppointmentRepository;
+import reactor.core.publisher.Mono;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 
 @RestController
 @RequestMapping("${api.path}prescription")
 public class PrescriptionController {
 
+    private static final int MAX_BATCH_SIZE = 500;
+    private static final int MAX_SEARCH_RESULTS = 200;
+
     private final PrescriptionService prescriptionService;
     private final TokenService service; // shared service for token validation
+    private final PrescriptionOutboxService prescriptionOutboxService;
+    private final IdempotencyService idempotencyService;
     private final AppointmentService appointmentService;
-    private AppointmentRepository appointmentRepository;
+    private final PrescriptionSearchService prescriptionSearchService;
 
     public PrescriptionController(PrescriptionService prescriptionService,
                                   TokenService service,
-                                  AppointmentService appointmentService) {
+                                  PrescriptionOutboxService prescriptionOutboxService,
+                                  IdempotencyService idempotencyService,
+                                  AppointmentService appointmentService,
+                                  PrescriptionSearchService prescriptionSearchService) {
         this.prescriptionService = prescriptionService;
         this.service = service;
+        this.prescriptionOutboxService = prescriptionOutboxService;
+        this.idempotencyService = idempotencyService;
         this.appointmentService = appointmentService;
+        this.prescriptionSearchService = prescriptionSearchService;
     }
 
     /**
-     * Save a new prescription
+     * Save a new prescription; retries with the same Idempotency-Key replay the first response
      */
     @PostMapping("/{token}")
-    public ResponseEntity<Map<String, String>> savePrescription(
+    public ResponseEntity<?> savePrescription(
             @RequestBody Prescription prescription,
-            @PathVariable String token) {
+            @PathVariable String token,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
 
         // Validate doctor token
         if (!service.validateToken(token, "doctor")) {
@@ -46,62 +59,121 @@ public class PrescriptionController {
                     .body(Map.of("error", "Invalid doctor token"));
         }
 
-        try {
-            // Update appointment status if needed
-            appointmentService.markPrescriptionAdded(prescription.getAppointmentId());
-
-            // Save the prescription
-            prescriptionService.savePrescription(prescription);
-
-            return ResponseEntity.status(HttpStatus.CREATED)
-                    .body(Map.of("message", "Prescription saved successfully"));
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(Map.of("error", "Failed to save prescription"));
-        }
+        Long doctorId = service.extractUserId(token);
+        return idempotencyService.execute("prescription", doctorId, idempotencyKey, prescription, () -> {
+            try {
+                // One local commit: flag the appointment and queue the Mongo write in the outbox
+                int result = prescriptionOutboxService.enqueue(prescription, doctorId);
+                if (result == 0) {
+                    return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                            .body(Map.of("error", "Appointment not found for this doctor"));
+                } else if (result == -1) {
+                    return ResponseEntity.status(HttpStatus.CONFLICT)
+                            .body(Map.of("error", "Prescription already exists for this appointment"));
+                }
+
+                return ResponseEntity.status(HttpStatus.CREATED)
+                        .body(Map.of("message", "Prescription saved successfully"));
+            } catch (Exception e) {
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                        .body(Map.of("error", "Failed to save prescription"));
+            }
+        });
     }
 
     /**
-     * Get prescription by appointment ID
+     * Get prescription by appointment ID. Returns a Mono: on a cache miss the Tomcat
+     * thread is released while the reactive Mongo driver waits, so a slow Mongo
+     * cannot exhaust the shared request pool.
      */
     @GetMapping("/{appointmentId}/{token}")
-    public ResponseEntity<?> getPrescription(
+    public Mono<ResponseEntity<?>> getPrescription(
             @PathVariable Long appointmentId,
             @PathVariable String token) {
 
-        // Validate doctor token
+        // Validate doctor token (MySQL, short) before handing off to Mongo
+        if (!service.validateToken(token, "doctor")) {
+            return Mono.just(ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(Map.of("error", "Invalid doctor token")));
+        }
+
+        // Return all prescriptions
+        return prescriptionService.getPrescriptionByAppointmentId(appointmentId)
+                .<ResponseEntity<?>>map(prescriptions -> prescriptions.isEmpty()
+                        ? ResponseEntity.status(HttpStatus.NOT_FOUND)
+                                .body(Map.of("message", "No prescription found for this appointment"))
+                        : ResponseEntity.ok(prescriptions));
+    }
+
+    /**
+     * Search prescriptions by medication or notes (?q=amox, prefix match per word),
+     * optionally limited to ?from=yyyy-MM-dd and ?to=yyyy-MM-dd
+     */
+    @GetMapping("/search/{token}")
+    public ResponseEntity<?> searchPrescriptions(
+            @PathVariable String token,
+            @RequestParam String q,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(defaultValue = "50") int limit) {
+
         if (!service.validateToken(token, "doctor")) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(Map.of("error", "Invalid doctor token"));
         }
 
-        List<Prescription> prescriptions = prescriptionService.getPrescriptionByAppointmentId(appointmentId);
-
-        if (prescriptions.isEmpty()) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                    .body(Map.of("message", "No prescription found for this appointment"));
+        LocalDate fromDate;
+        LocalDate toDate;
+        try {
+            fromDate = from != null && !from.isBlank() ? LocalDate.parse(from) : null;
+            toDate = to != null && !to.isBlank() ? LocalDate.parse(to) : null;
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Invalid date format"));
         }
 
-        // Return all prescriptions
-        return ResponseEntity.ok(prescriptions);
+        int boundedLimit = Math.max(1, Math.min(limit, MAX_SEARCH_RESULTS));
+        return ResponseEntity.ok(Map.of("prescriptions",
+                prescriptionSearchService.search(q, fromDate, toDate, boundedLimit)));
     }
 
+    /**
+     * Get prescriptions for a doctor's whole day (?date=yyyy-MM-dd) or for a list of
+     * appointments (?appointmentIds=1,2,3), grouped by appointment ID
+     */
+    @GetMapping("/batch/{token}")
+    public ResponseEntity<?> getPrescriptions(
+            @PathVariable String token,
+            @RequestParam(required = false) String date,
+            @RequestParam(required = false) List<Long> appointmentIds) {
 
-    // ------------------- PRESCRIPTION ADDED -------------------
-    @Transactional
-    public void markPrescriptionAdded(Long appointmentId) {
-        Optional<Appointment> appointmentOpt = appointmentRepository.findById(appointmentId);
+        // Validate doctor token once for the whole batch
+        if (!service.validateToken(token, "doctor")) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(Map.of("error", "Invalid doctor token"));
+        }
 
-        if (appointmentOpt.isEmpty()) {
-            throw new RuntimeException("Appointment not found");
+        List<Long> ids;
+        if (date != null && !date.isBlank()) {
+            LocalDate localDate;
+            try {
+                localDate = LocalDate.parse(date);
+            } catch (Exception e) {
+                return ResponseEntity.badRequest().body(Map.of("error", "Invalid date format"));
+            }
+            ids = appointmentService.getAppointmentIds(service.extractUserId(token), localDate);
+        } else if (appointmentIds != null && !appointmentIds.isEmpty()) {
+            if (appointmentIds.size() > MAX_BATCH_SIZE) {
+                return ResponseEntity.badRequest()
+                        .body(Map.of("error", "At most " + MAX_BATCH_SIZE + " appointment ids per request"));
+            }
+            // Only the caller's own appointments; other ids are left out as if they had no prescription
+            ids = appointmentService.filterDoctorAppointmentIds(service.extractUserId(token), appointmentIds);
+        } else {
+            return ResponseEntity.badRequest().body(Map.of("error", "Provide a date or appointmentIds"));
         }
 
-        Appointment appointment = appointmentOpt.get();
-        // Ensure your Appointment model has this field
-        appointment.setPrescriptionAdded(true);
-        appointmentRepository.save(appointment);
+        return ResponseEntity.ok(Map.of("prescriptions", prescriptionService.getPrescriptionsByAppointmentIds(ids)));
     }
-
 }
 
 
@@ -0,0 +1,100 @@
+package com.project.back_end.models;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Cold copy of a completed or cancelled appointment that has aged out of the
+ * hot {@code appointment} table. Rows keep the original appointment id and
+ * reference the doctor and patient by id only, so archiving never has to load
+ * the associations.
+ */
+@Entity
+@Table(name = "appointment_archive", indexes = {
+        @Index(name = "idx_appointment_archive_patient_time", columnList = "patient_id, appointment_time"),
+        @Index(name = "idx_appointment_archive_time", columnList = "appointment_time")
+})
+public class ArchivedAppointment {
+
+    // Same value as the id the row had in the hot table
+    @Id
+    private Long id;
+
+    @Column(name = "doctor_id", nullable = false)
+    private Long doctorId;
+
+    @Column(name = "patient_id", nullable = false)
+    private Long patientId;
+
+    @Column(name = "appointment_time", nullable = false)
+    private LocalDateTime appointmentTime;
+
+    @Column(nullable = false)
+    private int status;
+
+    @Column(nullable = false)
+    private boolean prescriptionAdded;
+
+    @Column(nullable = false)
+    private LocalDateTime archivedAt;
+
+    public ArchivedAppointment() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getDoctorId() {
+        return doctorId;
+    }
+
+    public void setDoctorId(Long doctorId) {
+        this.doctorId = doctorId;
+    }
+
+    public Long getPatientId() {
+        return patientId;
+    }
+
+    public void setPatientId(Long patientId) {
+        this.patientId = patientId;
+    }
+
+    public LocalDateTime getAppointmentTime() {
+        return appointmentTime;
+    }
+
+    public void setAppointmentTime(LocalDateTime appointmentTime) {
+        this.appointmentTime = appointmentTime;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public void setStatus(int status) {
+        this.status = status;
+    }
+
+    public boolean isPrescriptionAdded() {
+        return prescriptionAdded;
+    }
+
+    public void setPrescriptionAdded(boolean prescriptionAdded) {
+        this.prescriptionAdded = prescriptionAdded;
+    }
+
+    public LocalDateTime getArchivedAt() {
+        return archivedAt;
+    }
+
+    public void setArchivedAt(LocalDateTime archivedAt) {
+        this.archivedAt = archivedAt;
+    }
+}
@@ -0,0 +1,71 @@
+package com.project.back_end.models;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * One committed appointment or prescription change. Rows are batch-inserted
+ * with JDBC by AuditService; the entity only defines the table.
+ */
+@Entity
+@Table(name = "audit_event", indexes = {
+        @Index(name = "idx_audit_event_appointment", columnList = "appointment_id"),
+        @Index(name = "idx_audit_event_occurred_at", columnList = "occurred_at")
+})
+public class AuditEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // BOOKED, RESCHEDULED, CANCELLED, STATUS_CHANGED, PRESCRIPTION_ISSUED
+    @Column(name = "event_type", nullable = false, length = 40)
+    private String eventType;
+
+    @Column(name = "appointment_id")
+    private Long appointmentId;
+
+    @Column(name = "doctor_id")
+    private Long doctorId;
+
+    @Column(name = "patient_id")
+    private Long patientId;
+
+    @Column(length = 500)
+    private String detail;
+
+    @Column(name = "occurred_at", nullable = false)
+    private LocalDateTime occurredAt;
+
+    public AuditEvent() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getEventType() {
+        return eventType;
+    }
+
+    public Long getAppointmentId() {
+        return appointmentId;
+    }
+
+    public Long getDoctorId() {
+        return doctorId;
+    }
+
+    public Long getPatientId() {
+        return patientId;
+    }
+
+    public String getDetail() {
+        return detail;
+    }
+
+    public LocalDateTime getOccurredAt() {
+        return occurredAt;
+    }
+}
@@ -0,0 +1,57 @@
+package com.project.back_end.models;
+
+import jakarta.persistence.*;
+
+/**
+ * Shard map entry for a doctor whose appointments do not live on the hashed
+ * default shard, i.e. doctors moved by the rebalancing tool. Stored on shard-0.
+ * {@code migrating} is set while the doctor's rows are being copied; writes
+ * for the doctor are refused until the move completes.
+ */
+@Entity
+@Table(name = "doctor_shard")
+public class DoctorShard {
+
+    @Id
+    @Column(name = "doctor_id")
+    private Long doctorId;
+
+    @Column(nullable = false, length = 32)
+    private String shard;
+
+    @Column(nullable = false)
+    private boolean migrating;
+
+    public DoctorShard() {
+    }
+
+    public DoctorShard(Long doctorId, String shard, boolean migrating) {
+        this.doctorId = doctorId;
+        this.shard = shard;
+        this.migrating = migrating;
+    }
+
+    public Long getDoctorId() {
+        return doctorId;
+    }
+
+    public void setDoctorId(Long doctorId) {
+        this.doctorId = doctorId;
+    }
+
+    public String getShard() {
+        return shard;
+    }
+
+    public void setShard(String shard) {
+        this.shard = shard;
+    }
+
+    public boolean isMigrating() {
+        return migrating;
+    }
+
+    public void setMigrating(boolean migrating) {
+        this.migrating = migrating;
+    }
+}
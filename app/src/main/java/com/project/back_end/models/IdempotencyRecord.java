@@ -0,0 +1,99 @@
+package com.project.back_end.models;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Stored response of a POST that carried an {@code Idempotency-Key} header.
+ * The key is scoped by endpoint and caller id, e.g. {@code appointments:12:<key>}.
+ */
+@Entity
+@Table(name = "idempotency_record", indexes = {
+        @Index(name = "idx_idempotency_record_created_at", columnList = "created_at")
+})
+public class IdempotencyRecord {
+
+    @Id
+    @Column(name = "idempotency_key", length = 191)
+    private String key;
+
+    // SHA-256 of the request body; a key reused with another body is rejected
+    @Column(name = "request_hash", length = 64)
+    private String requestHash;
+
+    @Column(nullable = false)
+    private int statusCode;
+
+    // The response body as JSON, whatever format it was sent in; replays encode it again for their Accept header
+    @Column(columnDefinition = "TEXT")
+    private String responseBody;
+
+    // Set only when the response fixed its own Content-Type; otherwise the replay negotiates it
+    @Column(name = "content_type", length = 100)
+    private String contentType;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    public IdempotencyRecord() {
+    }
+
+    public IdempotencyRecord(String key, String requestHash, int statusCode, String responseBody,
+                             String contentType, LocalDateTime createdAt) {
+        this.key = key;
+        this.requestHash = requestHash;
+        this.statusCode = statusCode;
+        this.responseBody = responseBody;
+        this.contentType = contentType;
+        this.createdAt = createdAt;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+    public String getRequestHash() {
+        return requestHash;
+    }
+
+    public void setRequestHash(String requestHash) {
+        this.requestHash = requestHash;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public void setStatusCode(int statusCode) {
+        this.statusCode = statusCode;
+    }
+
+    public String getResponseBody() {
+        return responseBody;
+    }
+
+    public void setResponseBody(String responseBody) {
+        this.responseBody = responseBody;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
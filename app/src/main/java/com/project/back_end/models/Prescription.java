@@ -1,16 +1,21 @@
 package com.project.back_end.models;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.Id;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 import org.springframework.data.mongodb.core.mapping.Document;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 @Document(collection = "prescriptions")
 public class Prescription {
 
   // @Document annotation:
 //    - Marks the class as a MongoDB document (a collection in MongoDB).
 //    - The collection name is specified as "prescriptions" to map this class to the "prescriptions" collection in MongoDB.
+//    - Indexes (unique appointmentId, searchTokens + issuedAt) are created at startup by config.PrescriptionIndexInitializer.
     @Id
     private String id;
 // 1. 'id' field:
@@ -58,6 +63,25 @@ public class Prescription {
 //    - Description:
 //      - Represents any additional notes or instructions from the doctor regarding the prescription.
 //      - The @Size(max = 200) annotation ensures that the doctor's notes do not exceed 200 characters, providing a reasonable limit for additional notes.
+    private LocalDateTime issuedAt;
+// 7. 'issuedAt' field:
+//    - Type: private LocalDateTime
+//    - Description:
+//      - When the doctor issued the prescription; used for date limits in medication search.
+    @JsonIgnore
+    private List<String> searchTokens;
+// 8. 'searchTokens' field:
+//    - Type: private List<String>
+//    - Description:
+//      - Lower-cased words of medication and doctorNotes, filled in on save.
+//      - Backed by a multikey index, this is the inverted index used for (prefix) medication search.
+//      - Not part of the JSON API.
+    private Long doctorId;
+// 9. 'doctorId' field:
+//    - Type: private Long
+//    - Description:
+//      - ID of the doctor who issued the prescription, taken from the doctor's token on save.
+//      - Keys the per-doctor monthly prescribing rollups.
     public Prescription(){
 
     }
@@ -71,7 +95,7 @@ public class Prescription {
         this.doctorNotes = doctorNotes;
     }
 
-    // 7. Constructors:
+    // 10. Constructors:
 //    - The class includes a no-argument constructor (default constructor) and a parameterized constructor that initializes the fields: patientName, medication, dosage, doctorNotes, and appointmentId.
 
     public String getId() {
@@ -122,9 +146,33 @@ public class Prescription {
         this.doctorNotes = doctorNotes;
     }
 
+    public LocalDateTime getIssuedAt() {
+        return issuedAt;
+    }
+
+    public void setIssuedAt(LocalDateTime issuedAt) {
+        this.issuedAt = issuedAt;
+    }
+
+    public List<String> getSearchTokens() {
+        return searchTokens;
+    }
+
+    public void setSearchTokens(List<String> searchTokens) {
+        this.searchTokens = searchTokens;
+    }
+
+    public Long getDoctorId() {
+        return doctorId;
+    }
+
+    public void setDoctorId(Long doctorId) {
+        this.doctorId = doctorId;
+    }
+
 
-// 8. Getters and Setters:
-//    - Standard getter and setter methods are provided for all fields: id, patientName, medication, dosage, doctorNotes, and appointmentId.
+// 11. Getters and Setters:
+//    - Standard getter and setter methods are provided for all fields: id, patientName, medication, dosage, doctorNotes, appointmentId, issuedAt, searchTokens and doctorId.
 //    - These methods allow access and modification of the fields of the Prescription class.
 
 
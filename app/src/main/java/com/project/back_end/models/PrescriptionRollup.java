@@ -0,0 +1,116 @@
+package com.project.back_end.models;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Pre-aggregated prescribing counts for one doctor in one month.
+ * Incremented on every prescription insert and fully recomputable from the
+ * prescriptions collection by PrescriptionRollupService.rebuild().
+ *
+ * {@code appointments} records which prescriptions are counted, so an
+ * increment is applied at most once per appointment and a rebuild can merge
+ * with increments that land while it runs.
+ */
+@Document(collection = "prescription_rollups")
+public class PrescriptionRollup {
+
+    // "<doctorId>:<yyyy-MM>"
+    @Id
+    private String id;
+
+    private Long doctorId;
+
+    // yyyy-MM, sorts lexicographically
+    private String month;
+
+    private long total;
+
+    // normalized medication name -> number of prescriptions
+    private Map<String, Long> medications = new HashMap<>();
+
+    // appointmentId -> normalized medication name, one entry per counted prescription
+    private Map<String, String> appointments = new HashMap<>();
+
+    // Bumped by every write; a rebuild replaces only the version it merged with
+    private long version;
+
+    private LocalDateTime updatedAt;
+
+    public PrescriptionRollup() {
+    }
+
+    public PrescriptionRollup(String id, Long doctorId, String month) {
+        this.id = id;
+        this.doctorId = doctorId;
+        this.month = month;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public Long getDoctorId() {
+        return doctorId;
+    }
+
+    public void setDoctorId(Long doctorId) {
+        this.doctorId = doctorId;
+    }
+
+    public String getMonth() {
+        return month;
+    }
+
+    public void setMonth(String month) {
+        this.month = month;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public void setTotal(long total) {
+        this.total = total;
+    }
+
+    public Map<String, Long> getMedications() {
+        return medications;
+    }
+
+    public void setMedications(Map<String, Long> medications) {
+        this.medications = medications;
+    }
+
+    public Map<String, String> getAppointments() {
+        return appointments;
+    }
+
+    public void setAppointments(Map<String, String> appointments) {
+        this.appointments = appointments;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -1,15 +1,22 @@
 package com.project.back_end.repo;
 
 import com.project.back_end.models.Appointment;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface AppointmentRepository extends JpaRepository<Appointment, Long> {
@@ -17,7 +24,9 @@ public interface AppointmentRepository extends JpaRepository<Appointment, Long>
     // Uses nested property traversal (doctor.id)
     List<Appointment> findByDoctor_Id(Long doctorId);
 
-    @Query("SELECT a FROM Appointment a WHERE a.doctor.id = :doctorId AND a.appointmentTime BETWEEN :start AND :end")
+    // Day view queries leave out cancelled (status 2) rows
+    @Query("SELECT a FROM Appointment a WHERE a.doctor.id = :doctorId AND a.status <> 2 " +
+            "AND a.appointmentTime BETWEEN :start AND :end")
     List<Appointment> findByDoctorIdAndAppointmentTimeBetween(@Param("doctorId") Long doctorId,
                                                               @Param("start") LocalDateTime start,
                                                               @Param("end") LocalDateTime end);
@@ -26,20 +35,48 @@ public interface AppointmentRepository extends JpaRepository<Appointment, Long>
             "JOIN FETCH a.doctor d " +
             "JOIN FETCH a.patient p " +
             "WHERE d.id = :doctorId AND LOWER(p.name) LIKE LOWER(CONCAT('%', :patientName, '%')) " +
-            "AND a.appointmentTime BETWEEN :start AND :end")
+            "AND a.status <> 2 AND a.appointmentTime BETWEEN :start AND :end")
     List<Appointment> findByDoctorIdAndPatient_NameContainingIgnoreCaseAndAppointmentTimeBetween(
             @Param("doctorId") Long doctorId,
             @Param("patientName") String patientName,
             @Param("start") LocalDateTime start,
             @Param("end") LocalDateTime end);
 
-    @Modifying
-    @Transactional
-    void deleteAllByDoctor_Id(Long doctorId);
+    // Streamed day view: doctor (with its available times) and patient fetched in the same rows, read row
+    // by row. Nothing may load lazily while the stream is open; ordered by id too so one appointment's rows stay together
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = DoctorRepository.STREAM_FETCH_SIZE))
+    @Query("SELECT a FROM Appointment a JOIN FETCH a.doctor d LEFT JOIN FETCH d.availableTimes JOIN FETCH a.patient p " +
+            "WHERE d.id = :doctorId AND a.status <> 2 AND a.appointmentTime BETWEEN :start AND :end ORDER BY a.appointmentTime, a.id")
+    Stream<Appointment> streamByDoctorIdAndAppointmentTimeBetween(@Param("doctorId") Long doctorId,
+                                                                  @Param("start") LocalDateTime start,
+                                                                  @Param("end") LocalDateTime end);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = DoctorRepository.STREAM_FETCH_SIZE))
+    @Query("SELECT a FROM Appointment a JOIN FETCH a.doctor d LEFT JOIN FETCH d.availableTimes JOIN FETCH a.patient p " +
+            "WHERE d.id = :doctorId AND LOWER(p.name) LIKE LOWER(CONCAT('%', :patientName, '%')) " +
+            "AND a.status <> 2 AND a.appointmentTime BETWEEN :start AND :end ORDER BY a.appointmentTime, a.id")
+    Stream<Appointment> streamByDoctorIdAndPatientNameAndAppointmentTimeBetween(
+            @Param("doctorId") Long doctorId,
+            @Param("patientName") String patientName,
+            @Param("start") LocalDateTime start,
+            @Param("end") LocalDateTime end);
+
+    @Query("SELECT a.id FROM Appointment a WHERE a.doctor.id = :doctorId ORDER BY a.id")
+    List<Long> findIdsByDoctorId(@Param("doctorId") Long doctorId, Pageable pageable);
+
+    // Patient history: AppointmentDTO reads the doctor and patient of every row, so both come in the same query
+    @Query("SELECT a FROM Appointment a JOIN FETCH a.doctor JOIN FETCH a.patient p WHERE p.id = :patientId")
+    List<Appointment> findByPatientId(@Param("patientId") Long patientId);
 
-    List<Appointment> findByPatientId(Long patientId);
+    @Query("SELECT a FROM Appointment a JOIN FETCH a.doctor JOIN FETCH a.patient p " +
+            "WHERE p.id = :patientId AND a.appointmentTime >= :from")
+    List<Appointment> findByPatient_IdAndAppointmentTimeGreaterThanEqual(@Param("patientId") Long patientId,
+                                                                         @Param("from") LocalDateTime from);
 
-    List<Appointment> findByPatient_IdAndStatusOrderByAppointmentTimeAsc(Long patientId, int status);
+    @Query("SELECT a FROM Appointment a JOIN FETCH a.doctor JOIN FETCH a.patient p " +
+            "WHERE p.id = :patientId AND a.status = :status ORDER BY a.appointmentTime ASC")
+    List<Appointment> findByPatient_IdAndStatusOrderByAppointmentTimeAsc(@Param("patientId") Long patientId,
+                                                                         @Param("status") int status);
 
     @Query("SELECT a FROM Appointment a " +
             "JOIN a.doctor d " +
@@ -48,14 +85,77 @@ public interface AppointmentRepository extends JpaRepository<Appointment, Long>
                                                      @Param("patientId") Long patientId);
 
     @Query("SELECT a FROM Appointment a " +
-            "JOIN a.doctor d " +
-            "WHERE LOWER(d.name) LIKE LOWER(CONCAT('%', :doctorName, '%')) AND a.patient.id = :patientId AND a.status = :status")
+            "JOIN FETCH a.doctor d JOIN FETCH a.patient p " +
+            "WHERE LOWER(d.name) LIKE LOWER(CONCAT('%', :doctorName, '%')) AND p.id = :patientId AND a.status = :status")
     List<Appointment> filterByDoctorNameAndPatientIdAndStatus(@Param("doctorName") String doctorName,
                                                               @Param("patientId") Long patientId,
                                                               @Param("status") int status);
 
+    @Query("SELECT a.id FROM Appointment a WHERE a.doctor.id = :doctorId AND a.status <> 2 " +
+            "AND a.appointmentTime BETWEEN :start AND :end")
+    List<Long> findIdsByDoctorIdAndAppointmentTimeBetween(@Param("doctorId") Long doctorId,
+                                                          @Param("start") LocalDateTime start,
+                                                          @Param("end") LocalDateTime end);
+
+    // Ignores cancelled (status 2) rows; used for availability and overlap checks
+    @Query("SELECT a FROM Appointment a WHERE a.doctor.id = :doctorId AND a.status <> 2 " +
+            "AND a.appointmentTime BETWEEN :start AND :end")
+    List<Appointment> findActiveByDoctorIdAndAppointmentTimeBetween(@Param("doctorId") Long doctorId,
+                                                                    @Param("start") LocalDateTime start,
+                                                                    @Param("end") LocalDateTime end);
+
+    boolean existsByIdAndPatient_Id(Long id, Long patientId);
+
     @Modifying
     @Transactional
     @Query("UPDATE Appointment a SET a.status = :status WHERE a.id = :id")
     int updateStatus(@Param("status") int status, @Param("id") long id);
+
+    // Single-statement, ownership-checked writes: each returns the affected row count (0 or 1)
+    // Only the first prescription flips the flag; 0 means missing, not the doctor's, or already prescribed
+    @Modifying
+    @Transactional
+    @Query("UPDATE Appointment a SET a.prescriptionAdded = true " +
+            "WHERE a.id = :id AND a.doctor.id = :doctorId AND a.prescriptionAdded = false")
+    int claimPrescription(@Param("id") long id, @Param("doctorId") long doctorId);
+
+    boolean existsByIdAndDoctor_Id(Long id, Long doctorId);
+
+    @Query("SELECT a.id FROM Appointment a WHERE a.id IN :ids AND a.doctor.id = :doctorId")
+    List<Long> findIdsByIdInAndDoctor_Id(@Param("ids") Collection<Long> ids, @Param("doctorId") Long doctorId);
+
+    // Finds which doctor (and so which shard) and patient own an appointment known only by id
+    @Query("SELECT a.doctor.id AS doctorId, a.patient.id AS patientId FROM Appointment a WHERE a.id = :id")
+    Optional<Owners> findOwnersById(@Param("id") Long id);
+
+    interface Owners {
+        Long getDoctorId();
+
+        Long getPatientId();
+    }
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Appointment a SET a.status = 2 WHERE a.id = :id AND a.patient.id = :patientId AND a.status = 0")
+    int cancelForPatient(@Param("id") long id, @Param("patientId") long patientId);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Appointment a SET a.appointmentTime = :appointmentTime " +
+            "WHERE a.id = :id AND a.patient.id = :patientId AND a.doctor.id = :doctorId AND a.status = 0")
+    int rescheduleForPatient(@Param("id") long id,
+                             @Param("patientId") long patientId,
+                             @Param("doctorId") long doctorId,
+                             @Param("appointmentTime") LocalDateTime appointmentTime);
+
+    // Archival: ids only, so a batch never hydrates the entities it is about to move
+    @Query("SELECT a.id FROM Appointment a WHERE a.status IN :statuses AND a.appointmentTime < :cutoff ORDER BY a.id")
+    List<Long> findArchivableIds(@Param("statuses") Collection<Integer> statuses,
+                                 @Param("cutoff") LocalDateTime cutoff,
+                                 Pageable pageable);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM Appointment a WHERE a.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
 }
\ No newline at end of file
@@ -0,0 +1,79 @@
+package com.project.back_end.repo;
+
+import com.project.back_end.DTO.AppointmentDTO;
+import com.project.back_end.models.ArchivedAppointment;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ArchivedAppointmentRepository extends JpaRepository<ArchivedAppointment, Long> {
+
+    // Server-side copy of a batch of hot rows; nothing is loaded into the persistence context
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO appointment_archive " +
+            "(id, doctor_id, patient_id, appointment_time, status, prescription_added, archived_at) " +
+            "SELECT id, doctor_id, patient_id, appointment_time, status, prescription_added, :archivedAt " +
+            "FROM appointment WHERE id IN (:ids)", nativeQuery = true)
+    int copyFromAppointments(@Param("ids") Collection<Long> ids,
+                             @Param("archivedAt") LocalDateTime archivedAt);
+
+    @Query("SELECT new com.project.back_end.DTO.AppointmentDTO(a.status, a.appointmentTime, " +
+            "p.address, p.phone, p.email, p.name, p.id, d.name, d.id, a.id) " +
+            "FROM ArchivedAppointment a, Doctor d, Patient p " +
+            "WHERE d.id = a.doctorId AND p.id = a.patientId AND a.patientId = :patientId " +
+            "ORDER BY a.appointmentTime ASC")
+    List<AppointmentDTO> findHistoryByPatientId(@Param("patientId") Long patientId);
+
+    @Query("SELECT new com.project.back_end.DTO.AppointmentDTO(a.status, a.appointmentTime, " +
+            "p.address, p.phone, p.email, p.name, p.id, d.name, d.id, a.id) " +
+            "FROM ArchivedAppointment a, Doctor d, Patient p " +
+            "WHERE d.id = a.doctorId AND p.id = a.patientId AND a.patientId = :patientId " +
+            "AND a.appointmentTime >= :from " +
+            "ORDER BY a.appointmentTime ASC")
+    List<AppointmentDTO> findHistoryByPatientIdSince(@Param("patientId") Long patientId,
+                                                     @Param("from") LocalDateTime from);
+
+    @Query("SELECT new com.project.back_end.DTO.AppointmentDTO(a.status, a.appointmentTime, " +
+            "p.address, p.phone, p.email, p.name, p.id, d.name, d.id, a.id) " +
+            "FROM ArchivedAppointment a, Doctor d, Patient p " +
+            "WHERE d.id = a.doctorId AND p.id = a.patientId AND a.patientId = :patientId " +
+            "AND a.status IN :statuses " +
+            "ORDER BY a.appointmentTime ASC")
+    List<AppointmentDTO> findHistoryByPatientIdAndStatusIn(@Param("patientId") Long patientId,
+                                                           @Param("statuses") Collection<Integer> statuses);
+
+    @Query("SELECT new com.project.back_end.DTO.AppointmentDTO(a.status, a.appointmentTime, " +
+            "p.address, p.phone, p.email, p.name, p.id, d.name, d.id, a.id) " +
+            "FROM ArchivedAppointment a, Doctor d, Patient p " +
+            "WHERE d.id = a.doctorId AND p.id = a.patientId AND a.patientId = :patientId " +
+            "AND LOWER(d.name) LIKE LOWER(CONCAT('%', :doctorName, '%')) AND a.status IN :statuses " +
+            "ORDER BY a.appointmentTime ASC")
+    List<AppointmentDTO> findHistoryByDoctorNameAndPatientIdAndStatusIn(@Param("doctorName") String doctorName,
+                                                                        @Param("patientId") Long patientId,
+                                                                        @Param("statuses") Collection<Integer> statuses);
+
+    // Served by idx_appointment_archive_time
+    @Query("SELECT MAX(a.appointmentTime) FROM ArchivedAppointment a")
+    LocalDateTime findLatestAppointmentTime();
+
+    @Query("SELECT a.id FROM ArchivedAppointment a WHERE a.id IN :ids AND a.doctorId = :doctorId")
+    List<Long> findIdsByIdInAndDoctorId(@Param("ids") Collection<Long> ids, @Param("doctorId") Long doctorId);
+
+    @Query("SELECT a.id FROM ArchivedAppointment a WHERE a.doctorId = :doctorId ORDER BY a.id")
+    List<Long> findIdsByDoctorId(@Param("doctorId") Long doctorId, Pageable pageable);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM ArchivedAppointment a WHERE a.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+}
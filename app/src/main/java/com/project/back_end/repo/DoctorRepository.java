@@ -1,14 +1,32 @@
 package com.project.back_end.repo;
 
 import com.project.back_end.models.Doctor;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface DoctorRepository extends JpaRepository<Doctor, Long> {
 
+    // Integer.MIN_VALUE makes Connector/J stream rows one by one instead of buffering the result. The
+    // connection can run nothing else until the stream is closed, so streamed queries fetch all they write.
+    String STREAM_FETCH_SIZE = "" + Integer.MIN_VALUE;
+
+    // Cached in the "login-lookups" query region; the entity itself comes from the second-level cache
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "login-lookups")
+    })
     Doctor findByEmail(String email);
 
     // Added for duplicate checking
@@ -19,4 +37,14 @@ public interface DoctorRepository extends JpaRepository<Doctor, Long> {
     List<Doctor> findByNameContainingIgnoreCaseAndSpecialtyIgnoreCase(String name, String specialty);
 
     List<Doctor> findBySpecialtyIgnoreCase(String specialty);
-}
\ No newline at end of file
+
+    // SELECT ... FOR UPDATE: a booking's foreign-key check on the doctor row waits until the lock is released
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT d FROM Doctor d WHERE d.id = :id")
+    Optional<Doctor> lockById(@Param("id") Long id);
+
+    // Full listing for streaming; ordered by id so each doctor's fetched times arrive together
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    @Query("SELECT d FROM Doctor d LEFT JOIN FETCH d.availableTimes ORDER BY d.id")
+    Stream<Doctor> streamAllWithAvailableTimes();
+}
@@ -1,7 +1,10 @@
 package com.project.back_end.repo;
 
 import com.project.back_end.models.Patient;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -9,6 +12,11 @@ import java.util.Optional;
 @Repository
 public interface PatientRepository extends JpaRepository<Patient, Long> {
 
+    // Cached in the "login-lookups" query region; the entity itself comes from the second-level cache
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "login-lookups")
+    })
     Optional<Patient> findByEmail(String email);
 
     // Added for efficient existence checks
@@ -0,0 +1,63 @@
+package com.project.back_end.repo;
+
+import com.project.back_end.models.PrescriptionOutbox;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.SpecHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface PrescriptionOutboxRepository extends JpaRepository<PrescriptionOutbox, Long> {
+
+    // Head of each appointment's queue only, so entries for one appointment are delivered in order;
+    // dead entries are neither dispatched nor hold up the ones behind them.
+    // FOR UPDATE SKIP LOCKED (lock timeout -2): rows another instance is claiming are passed over, not waited on
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = SpecHints.HINT_SPEC_LOCK_TIMEOUT, value = "-2"))
+    @Query("SELECT o FROM PrescriptionOutbox o WHERE o.dead = false AND o.nextAttemptAt <= :now " +
+            "AND NOT EXISTS (SELECT 1 FROM PrescriptionOutbox e WHERE e.appointmentId = o.appointmentId " +
+            "AND e.id < o.id AND e.dead = false) " +
+            "ORDER BY o.id")
+    List<PrescriptionOutbox> lockDispatchable(@Param("now") LocalDateTime now, Pageable pageable);
+
+    // Claims locked rows until the lease runs out; delivery deletes them, a failure reschedules them
+    @Modifying
+    @Query("UPDATE PrescriptionOutbox o SET o.nextAttemptAt = :leaseUntil WHERE o.id IN :ids")
+    int lease(@Param("ids") Collection<Long> ids, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM PrescriptionOutbox o WHERE o.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM PrescriptionOutbox o WHERE o.appointmentId IN :appointmentIds")
+    int deleteByAppointmentIdIn(@Param("appointmentIds") Collection<Long> appointmentIds);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE PrescriptionOutbox o SET o.attempts = o.attempts + 1, o.nextAttemptAt = :nextAttemptAt, " +
+            "o.lastError = :lastError WHERE o.id = :id")
+    int markFailed(@Param("id") long id,
+                   @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+                   @Param("lastError") String lastError);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE PrescriptionOutbox o SET o.attempts = o.attempts + 1, o.dead = true, o.lastError = :lastError " +
+            "WHERE o.id = :id")
+    int markDead(@Param("id") long id, @Param("lastError") String lastError);
+}
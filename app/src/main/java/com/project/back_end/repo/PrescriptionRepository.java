@@ -4,6 +4,7 @@ import com.project.back_end.models.Prescription;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -12,4 +13,10 @@ public interface PrescriptionRepository extends MongoRepository<Prescription, St
     List<Prescription> findByAppointmentId(Long appointmentId);
 
     boolean existsByAppointmentId(Long appointmentId);
+
+    // One $in query for a whole set of appointments (uses idx_prescription_appointment)
+    List<Prescription> findByAppointmentIdIn(Collection<Long> appointmentIds);
+
+    // Single remove with an $in filter; returns the deleted document count
+    long deleteByAppointmentIdIn(Collection<Long> appointmentIds);
 }
\ No newline at end of file
@@ -0,0 +1,21 @@
+package com.project.back_end.repo;
+
+import com.project.back_end.models.PrescriptionRollup;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface PrescriptionRollupRepository extends MongoRepository<PrescriptionRollup, String> {
+
+    // Inclusive month range (yyyy-MM); totals only, without the per-appointment bookkeeping
+    @Query(value = "{ 'month': { $gte: ?0, $lte: ?1 } }", fields = "{ 'appointments': 0 }")
+    List<PrescriptionRollup> findByMonthRange(String fromMonth, String toMonth);
+
+    @Query(value = "{ 'doctorId': ?0, 'month': { $gte: ?1, $lte: ?2 } }", fields = "{ 'appointments': 0 }")
+    List<PrescriptionRollup> findByDoctorIdAndMonthRange(Long doctorId, String fromMonth, String toMonth);
+
+    long deleteByDoctorId(Long doctorId);
+}
@@ -0,0 +1,13 @@
+package com.project.back_end.repo;
+
+import com.project.back_end.models.Prescription;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+
+// Non-blocking twin of PrescriptionRepository on the reactive Mongo driver
+@Repository
+public interface ReactivePrescriptionRepository extends ReactiveMongoRepository<Prescription, String> {
+
+    Flux<Prescription> findByAppointmentId(Long appointmentId);
+}
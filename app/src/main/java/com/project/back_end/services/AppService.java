@@ -1,5 +1,7 @@
 package com.project.back_end.services;
 
+import com.project.back_end.config.ReplicaRoutingContext;
+import com.project.back_end.DTO.DoctorResponse;
 import com.project.back_end.DTO.Login;
 import com.project.back_end.models.Admin;
 import com.project.back_end.models.Appointment;
@@ -66,7 +68,7 @@ public class AppService {
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
             }
 
-            Optional<Admin> adminOpt = adminRepository.findByUsername(receivedAdmin.getUsername());
+            Optional<Admin> adminOpt = ReplicaRoutingContext.onPrimary(() -> adminRepository.findByUsername(receivedAdmin.getUsername()));
             if (adminOpt.isEmpty()) {
                 response.put("error", "Admin not found");
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
@@ -92,7 +94,7 @@ public class AppService {
     // ------------------ DOCTOR FILTER ------------------
     public Map<String, Object> filterDoctor(String name, String specialty, String time) {
         Map<String, Object> response = new HashMap<>();
-        List<Doctor> doctors = doctorService.filterDoctorsByNameSpecialtyAndTime(name, specialty, time);
+        List<DoctorResponse> doctors = doctorService.filterDoctorsByNameSpecialtyAndTime(name, specialty, time);
         response.put("doctors", doctors);
         return response;
     }
@@ -157,7 +159,8 @@ public class AppService {
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
             }
 
-            Optional<Patient> patientOpt = patientRepository.findByEmail(login.getEmail());
+            // On the primary, so a login right after signup finds the new account
+            Optional<Patient> patientOpt = ReplicaRoutingContext.onPrimary(() -> patientRepository.findByEmail(login.getEmail()));
             if (patientOpt.isEmpty()) {
                 response.put("message", "Patient not found");
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
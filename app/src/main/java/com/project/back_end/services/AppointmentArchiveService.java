@@ -0,0 +1,147 @@
+package com.project.back_end.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.project.back_end.DTO.AppointmentDTO;
+import com.project.back_end.config.AppointmentShards;
+import com.project.back_end.config.ShardContext;
+import com.project.back_end.repo.AppointmentRepository;
+import com.project.back_end.repo.ArchivedAppointmentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Moves completed (1) and cancelled (2) appointments older than
+ * {@code appointment.archive.max-age-days} from the hot {@code appointment}
+ * table into {@code appointment_archive}. Each batch is copied and deleted in
+ * its own short transaction so the job never holds locks on the whole table.
+ * Every appointment shard has its own archive table and is archived in turn.
+ */
+@Service
+public class AppointmentArchiveService {
+
+    private static final Logger log = LoggerFactory.getLogger(AppointmentArchiveService.class);
+
+    private static final List<Integer> ARCHIVABLE_STATUSES = List.of(1, 2);
+    private static final List<Integer> PAST_STATUSES = List.of(1);
+
+    private final AppointmentRepository appointmentRepository;
+    private final ArchivedAppointmentRepository archivedAppointmentRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final AppointmentShardRouter appointmentShardRouter;
+
+    // Latest appointment_time in each shard's archive; rows archived under an earlier,
+    // shorter max-age-days can be newer than today's horizon
+    private final Cache<String, Optional<LocalDateTime>> archiveCeilings = Caffeine.newBuilder()
+            .expireAfterWrite(Duration.ofMinutes(10))
+            .build();
+
+    @Value("${appointment.archive.max-age-days:365}")
+    private int maxAgeDays;
+
+    @Value("${appointment.archive.batch-size:500}")
+    private int batchSize;
+
+    public AppointmentArchiveService(AppointmentRepository appointmentRepository,
+                                     ArchivedAppointmentRepository archivedAppointmentRepository,
+                                     TransactionTemplate transactionTemplate,
+                                     AppointmentShardRouter appointmentShardRouter) {
+        this.appointmentRepository = appointmentRepository;
+        this.archivedAppointmentRepository = archivedAppointmentRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.appointmentShardRouter = appointmentShardRouter;
+    }
+
+    // ------------------- ARCHIVE JOB -------------------
+    @Scheduled(cron = "${appointment.archive.cron:0 30 2 * * *}")
+    public int archiveOldAppointments() {
+        LocalDateTime cutoff = getHotHorizon();
+        int total = 0;
+        for (String shard : appointmentShardRouter.getShardNames()) {
+            total += ShardContext.onShard(shard, () -> archiveShard(cutoff));
+            archiveCeilings.invalidate(shard);
+        }
+        if (total > 0) {
+            log.info("Archived {} appointments older than {}", total, cutoff);
+        }
+        return total;
+    }
+
+    private int archiveShard(LocalDateTime cutoff) {
+        int total = 0;
+        while (true) {
+            Integer moved = transactionTemplate.execute(status -> archiveBatch(cutoff));
+            if (moved == null || moved == 0) {
+                break;
+            }
+            total += moved;
+            if (moved < batchSize) {
+                break;
+            }
+        }
+        return total;
+    }
+
+    private int archiveBatch(LocalDateTime cutoff) {
+        List<Long> ids = appointmentRepository.findArchivableIds(ARCHIVABLE_STATUSES, cutoff, PageRequest.of(0, batchSize));
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        archivedAppointmentRepository.copyFromAppointments(ids, LocalDateTime.now());
+        return appointmentRepository.deleteByIdIn(ids);
+    }
+
+    // ------------------- READ SIDE -------------------
+
+    /**
+     * The job archives rows older than this instant. Rows archived while
+     * max-age-days was shorter can be newer; {@link #reachesArchive} covers those.
+     */
+    public LocalDateTime getHotHorizon() {
+        return LocalDate.now().minusDays(maxAgeDays).atStartOfDay();
+    }
+
+    /**
+     * Whether a range starting at {@code from} (null = full history) can include
+     * archived rows on the current shard: it starts before the horizon, or at or
+     * before the newest row actually in the archive.
+     */
+    public boolean reachesArchive(LocalDateTime from) {
+        if (from == null || from.isBefore(getHotHorizon())) {
+            return true;
+        }
+        String shard = ShardContext.current() != null ? ShardContext.current() : AppointmentShards.DEFAULT_SHARD;
+        return archiveCeilings.get(shard, s -> Optional.ofNullable(archivedAppointmentRepository.findLatestAppointmentTime()))
+                .map(ceiling -> !from.isAfter(ceiling))
+                .orElse(false);
+    }
+
+    @Transactional(readOnly = true)
+    public List<AppointmentDTO> getArchivedHistory(Long patientId, LocalDateTime from) {
+        if (from == null) {
+            return archivedAppointmentRepository.findHistoryByPatientId(patientId);
+        }
+        return archivedAppointmentRepository.findHistoryByPatientIdSince(patientId, from);
+    }
+
+    // Completed appointments from the archive, for the "past" filters
+    @Transactional(readOnly = true)
+    public List<AppointmentDTO> getArchivedPast(Long patientId, String doctorName) {
+        if (doctorName == null) {
+            return archivedAppointmentRepository.findHistoryByPatientIdAndStatusIn(patientId, PAST_STATUSES);
+        }
+        return archivedAppointmentRepository.findHistoryByDoctorNameAndPatientIdAndStatusIn(doctorName, patientId, PAST_STATUSES);
+    }
+}
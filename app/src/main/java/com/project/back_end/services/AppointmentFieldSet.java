@@ -0,0 +1,193 @@
+package com.project.back_end.services;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * A compiled {@code fields=} selection over the AppointmentDTO properties.
+ *
+ * Compiling resolves each property to the column it needs, decides whether
+ * the doctor/patient joins are required at all, and builds the JPQL for every
+ * query that serves a sparse response. Rows come back as Object[] (appointment
+ * time and doctor id first, for ordering and shard ownership) and
+ * {@link #toMap} writes only the selected properties. Instances are immutable and cached per distinct selection by
+ * AppointmentProjectionService.
+ */
+public final class AppointmentFieldSet {
+
+    // Where a property's value comes from, in the hot table and in the archive
+    private enum Column {
+        TIME("a.appointmentTime", "a.appointmentTime", false, false),
+        ID("a.id", "a.id", false, false),
+        DOCTOR_ID("a.doctor.id", "a.doctorId", false, false),
+        DOCTOR_NAME("d.name", "d.name", true, false),
+        PATIENT_ID("a.patient.id", "a.patientId", false, false),
+        PATIENT_NAME("p.name", "p.name", false, true),
+        PATIENT_EMAIL("p.email", "p.email", false, true),
+        PATIENT_PHONE("p.phone", "p.phone", false, true),
+        PATIENT_ADDRESS("p.address", "p.address", false, true),
+        STATUS("a.status", "a.status", false, false);
+
+        private final String hot;
+        private final String archived;
+        private final boolean needsDoctor;
+        private final boolean needsPatient;
+
+        Column(String hot, String archived, boolean needsDoctor, boolean needsPatient) {
+            this.hot = hot;
+            this.archived = archived;
+            this.needsDoctor = needsDoctor;
+            this.needsPatient = needsPatient;
+        }
+    }
+
+    private record Property(String name, Column column, Function<Object, Object> value) {
+    }
+
+    // Same names and order as the AppointmentDTO components
+    private static final Map<String, Property> PROPERTIES = new LinkedHashMap<>();
+
+    static {
+        direct("id", Column.ID);
+        direct("doctorId", Column.DOCTOR_ID);
+        direct("doctorName", Column.DOCTOR_NAME);
+        direct("patientId", Column.PATIENT_ID);
+        direct("patientName", Column.PATIENT_NAME);
+        direct("patientEmail", Column.PATIENT_EMAIL);
+        direct("patientPhone", Column.PATIENT_PHONE);
+        direct("patientAddress", Column.PATIENT_ADDRESS);
+        direct("appointmentTime", Column.TIME);
+        direct("status", Column.STATUS);
+        derived("appointmentDate", time -> time.toLocalDate());
+        derived("appointmentTimeOnly", time -> time.toLocalTime());
+        derived("endTime", time -> time.plusHours(1));
+    }
+
+    private static void direct(String name, Column column) {
+        PROPERTIES.put(name, new Property(name, column, Function.identity()));
+    }
+
+    private static void derived(String name, Function<LocalDateTime, Object> fromTime) {
+        PROPERTIES.put(name, new Property(name, Column.TIME, value -> fromTime.apply((LocalDateTime) value)));
+    }
+
+    private final List<Property> selected;
+    private final int[] selectedIndex;
+    private final String patientHistory;
+    private final String patientHistorySince;
+    private final String archivedHistory;
+    private final String archivedHistorySince;
+    private final String doctorDay;
+    private final String doctorDayByPatientName;
+
+    private AppointmentFieldSet(List<Property> selected) {
+        this.selected = selected;
+
+        // TIME is always column 0, so sparse lists are still ordered and merged by time, and
+        // DOCTOR_ID column 1, so scattered rows can be checked against the doctor's shard
+        List<Column> columns = new ArrayList<>(List.of(Column.TIME, Column.DOCTOR_ID));
+        selected.stream().map(Property::column).distinct()
+                .filter(column -> !columns.contains(column))
+                .forEach(columns::add);
+        this.selectedIndex = selected.stream().mapToInt(property -> columns.indexOf(property.column())).toArray();
+
+        boolean doctor = columns.stream().anyMatch(column -> column.needsDoctor);
+        boolean patient = columns.stream().anyMatch(column -> column.needsPatient);
+        String hotSelect = "SELECT " + columns.stream().map(column -> column.hot).collect(Collectors.joining(", "));
+        String archivedSelect = "SELECT " + columns.stream().map(column -> column.archived).collect(Collectors.joining(", "));
+
+        String byPatient = hotSelect + hotFrom(doctor, patient) + " WHERE a.patient.id = :patientId";
+        this.patientHistory = byPatient + " ORDER BY a.appointmentTime";
+        this.patientHistorySince = byPatient + " AND a.appointmentTime >= :since ORDER BY a.appointmentTime";
+
+        String archived = archivedSelect + " FROM ArchivedAppointment a" + (doctor ? ", Doctor d" : "") + (patient ? ", Patient p" : "")
+                + " WHERE " + (doctor ? "d.id = a.doctorId AND " : "") + (patient ? "p.id = a.patientId AND " : "")
+                + "a.patientId = :patientId";
+        this.archivedHistory = archived + " ORDER BY a.appointmentTime";
+        this.archivedHistorySince = archived + " AND a.appointmentTime >= :since ORDER BY a.appointmentTime";
+
+        // Cancelled (status 2) rows stay out of the day view, as in the full-entity queries
+        String byDoctor = " WHERE a.doctor.id = :doctorId AND a.status <> 2 AND a.appointmentTime BETWEEN :start AND :end";
+        this.doctorDay = hotSelect + hotFrom(doctor, patient) + byDoctor + " ORDER BY a.appointmentTime";
+        // The name filter needs the patient join even when no patient field is selected
+        this.doctorDayByPatientName = hotSelect + hotFrom(doctor, true) + byDoctor
+                + " AND LOWER(p.name) LIKE LOWER(CONCAT('%', :patientName, '%')) ORDER BY a.appointmentTime";
+    }
+
+    private static String hotFrom(boolean doctor, boolean patient) {
+        return " FROM Appointment a" + (doctor ? " JOIN a.doctor d" : "") + (patient ? " JOIN a.patient p" : "");
+    }
+
+    /**
+     * Parses a comma-separated property list, e.g. "id,patientName,appointmentTime".
+     * @throws IllegalArgumentException on an empty list or an unknown property
+     */
+    public static AppointmentFieldSet parse(String fields) {
+        Set<String> requested = requested(fields);
+        return new AppointmentFieldSet(PROPERTIES.values().stream()
+                .filter(property -> requested.contains(property.name()))
+                .toList());
+    }
+
+    /**
+     * The selection in canonical form (sorted, trimmed, no duplicates), so that
+     * "id,status" and "status, id" compile to the same field set.
+     * @throws IllegalArgumentException on an empty list or an unknown property
+     */
+    public static String normalize(String fields) {
+        return String.join(",", requested(fields));
+    }
+
+    private static Set<String> requested(String fields) {
+        Set<String> requested = Arrays.stream(fields.split(","))
+                .map(String::trim)
+                .filter(name -> !name.isEmpty())
+                .collect(Collectors.toCollection(TreeSet::new));
+        if (requested.isEmpty()) {
+            throw new IllegalArgumentException("No fields selected");
+        }
+        for (String name : requested) {
+            if (!PROPERTIES.containsKey(name)) {
+                throw new IllegalArgumentException("Unknown field: " + name);
+            }
+        }
+        return requested;
+    }
+
+    public String patientHistoryQuery(boolean since) {
+        return since ? patientHistorySince : patientHistory;
+    }
+
+    public String archivedHistoryQuery(boolean since) {
+        return since ? archivedHistorySince : archivedHistory;
+    }
+
+    public String doctorDayQuery(boolean byPatientName) {
+        return byPatientName ? doctorDayByPatientName : doctorDay;
+    }
+
+    public LocalDateTime timeOf(Object[] row) {
+        return (LocalDateTime) row[0];
+    }
+
+    public Long doctorIdOf(Object[] row) {
+        return (Long) row[1];
+    }
+
+    public Map<String, Object> toMap(Object[] row) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (int i = 0; i < selectedIndex.length; i++) {
+            Property property = selected.get(i);
+            values.put(property.name(), property.value().apply(row[selectedIndex[i]]));
+        }
+        return values;
+    }
+}
@@ -0,0 +1,94 @@
+package com.project.back_end.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sparse appointment lists for {@code fields=} requests: only the selected
+ * columns are queried (and the doctor/patient joins only when a selected field
+ * needs them), and only the selected properties are serialized.
+ */
+@Service
+public class AppointmentProjectionService {
+
+    // Distinct selections come from a handful of pages; the bound keeps arbitrary client input from growing it
+    private static final int MAX_FIELD_SETS = 256;
+
+    private final EntityManager entityManager;
+    private final AppointmentShardRouter appointmentShardRouter;
+    private final AppointmentArchiveService appointmentArchiveService;
+    private final Cache<String, AppointmentFieldSet> fieldSets = Caffeine.newBuilder()
+            .maximumSize(MAX_FIELD_SETS)
+            .build();
+
+    public AppointmentProjectionService(EntityManager entityManager,
+                                        AppointmentShardRouter appointmentShardRouter,
+                                        AppointmentArchiveService appointmentArchiveService) {
+        this.entityManager = entityManager;
+        this.appointmentShardRouter = appointmentShardRouter;
+        this.appointmentArchiveService = appointmentArchiveService;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the selection is empty or names an unknown field
+     */
+    public AppointmentFieldSet compile(String fields) {
+        // Keyed on the canonical selection: reordered or padded variants share one entry, and
+        // invalid input is rejected before it reaches the cache
+        return fieldSets.get(AppointmentFieldSet.normalize(fields), AppointmentFieldSet::parse);
+    }
+
+    // Same rows and order as PatientService.getPatientAppointment, narrowed to the selected fields
+    public List<Map<String, Object>> getPatientHistory(Long patientId, LocalDateTime since, AppointmentFieldSet fields) {
+        List<Object[]> rows = new ArrayList<>(appointmentShardRouter.scatter(() -> {
+            List<Object[]> shardRows = new ArrayList<>();
+            if (appointmentArchiveService.reachesArchive(since)) {
+                shardRows.addAll(query(fields.archivedHistoryQuery(since != null), since)
+                        .setParameter("patientId", patientId)
+                        .getResultList());
+            }
+            shardRows.addAll(query(fields.patientHistoryQuery(since != null), since)
+                    .setParameter("patientId", patientId)
+                    .getResultList());
+            return shardRows;
+        }, fields::doctorIdOf));
+        // Archive and hot rows (and shards) are concatenated; order the result by time
+        rows.sort(Comparator.comparing(fields::timeOf));
+        return rows.stream().map(fields::toMap).toList();
+    }
+
+    // Doctor's day view, narrowed to the selected fields
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getDoctorDay(Long doctorId, String patientName, LocalDate date,
+                                                  AppointmentFieldSet fields) {
+        appointmentShardRouter.bindForRead(doctorId);
+        boolean byName = patientName != null && !patientName.trim().isEmpty();
+        TypedQuery<Object[]> query = entityManager.createQuery(fields.doctorDayQuery(byName), Object[].class)
+                .setParameter("doctorId", doctorId)
+                .setParameter("start", date.atStartOfDay())
+                .setParameter("end", date.plusDays(1).atStartOfDay());
+        if (byName) {
+            query.setParameter("patientName", patientName.trim());
+        }
+        return query.getResultList().stream().map(fields::toMap).toList();
+    }
+
+    private TypedQuery<Object[]> query(String jpql, LocalDateTime since) {
+        TypedQuery<Object[]> query = entityManager.createQuery(jpql, Object[].class);
+        if (since != null) {
+            query.setParameter("since", since);
+        }
+        return query;
+    }
+}
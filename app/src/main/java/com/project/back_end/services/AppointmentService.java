@@ -1,22 +1,31 @@
 // Java
 package com.project.back_end.services;
 
+import com.project.back_end.config.AppointmentShards;
+import com.project.back_end.config.ShardContext;
 import com.project.back_end.DTO.AppointmentDTO;
+import com.project.back_end.DTO.AppointmentResponse;
 import com.project.back_end.DTO.Login;
 import com.project.back_end.models.Appointment;
 import com.project.back_end.models.Patient;
 import com.project.back_end.repo.AppointmentRepository;
+import com.project.back_end.repo.ArchivedAppointmentRepository;
 import com.project.back_end.repo.DoctorRepository;
 import com.project.back_end.repo.PatientRepository;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.stream.Stream;
 
 @Service
 public class AppointmentService {
@@ -25,64 +34,98 @@ public class AppointmentService {
     private final PatientRepository patientRepository;
     private final DoctorRepository doctorRepository;
     private final TokenService tokenService;
+    private final AppointmentShardRouter appointmentShardRouter;
+    private final AuditService auditService;
+    private final JsonStreamWriter jsonStreamWriter;
+    private final ArchivedAppointmentRepository archivedAppointmentRepository;
+    private final TransactionTemplate transactionTemplate;
 
     @Autowired
     public AppointmentService(
             AppointmentRepository appointmentRepository,
             PatientRepository patientRepository,
             DoctorRepository doctorRepository,
-            TokenService tokenService
+            TokenService tokenService,
+            AppointmentShardRouter appointmentShardRouter,
+            AuditService auditService,
+            JsonStreamWriter jsonStreamWriter,
+            ArchivedAppointmentRepository archivedAppointmentRepository,
+            TransactionTemplate transactionTemplate
     ) {
         this.appointmentRepository = appointmentRepository;
         this.patientRepository = patientRepository;
         this.doctorRepository = doctorRepository;
         this.tokenService = tokenService;
+        this.appointmentShardRouter = appointmentShardRouter;
+        this.auditService = auditService;
+        this.jsonStreamWriter = jsonStreamWriter;
+        this.archivedAppointmentRepository = archivedAppointmentRepository;
+        this.transactionTemplate = transactionTemplate;
     }
 
     // ------------------- BOOK -------------------
-    @Transactional
+    @Timed(value = "clinic.appointment.book", description = "Appointment booking")
     public Appointment bookAppointment(Appointment appointment) {
-        validateEntitiesOrThrow(appointment);
-        if (!validateAppointment(appointment)) {
-            throw new RuntimeException("Appointment validation failed or doctor unavailable");
-        }
-        return appointmentRepository.save(appointment);
+        // Patients and doctors live on the default shard. Checked before the write transaction,
+        // whose first statement must already run on the doctor's shard
+        ShardContext.onShard(AppointmentShards.DEFAULT_SHARD, () -> {
+            validateEntitiesOrThrow(appointment);
+            return null;
+        });
+        return transactionTemplate.execute(status -> {
+            appointmentShardRouter.bindForWrite(appointment.getDoctor().getId());
+            if (!validateAppointment(appointment)) {
+                throw new RuntimeException("Appointment validation failed or doctor unavailable");
+            }
+            Appointment saved = appointmentRepository.save(appointment);
+            auditService.record(AuditService.BOOKED, saved.getId(), saved.getDoctor().getId(),
+                    saved.getPatient().getId(), "time=" + saved.getAppointmentTime());
+            return saved;
+        });
     }
 
     // ------------------- UPDATE -------------------
+    // Reschedules in one UPDATE scoped to the owning patient and doctor.
+    // Returns the affected row count: 0 if the appointment does not exist,
+    // belongs to someone else or is no longer scheduled.
     @Transactional
-    public Appointment updateAppointment(Appointment appointment) {
-        if (appointment == null || appointment.getId() == null) {
+    public int updateAppointment(Appointment appointment, Long patientId) {
+        if (appointment == null || appointment.getId() == null || patientId == null
+                || appointment.getDoctor() == null || appointment.getDoctor().getId() == null
+                || appointment.getAppointmentTime() == null) {
             throw new RuntimeException("Invalid appointment payload");
         }
 
-        Optional<Appointment> existingOpt = appointmentRepository.findById(appointment.getId());
-        if (existingOpt.isEmpty()) {
-            throw new RuntimeException("Appointment not found");
-        }
-
-        Appointment existing = existingOpt.get();
-
         if (appointment.getPatient() == null || appointment.getPatient().getId() == null
-                || !Objects.equals(existing.getPatient().getId(), appointment.getPatient().getId())) {
+                || !Objects.equals(patientId, appointment.getPatient().getId())) {
             throw new RuntimeException("Unauthorized update attempt");
         }
 
-        // Ensure referenced entities exist
-        validateEntitiesOrThrow(appointment);
+        // Only the doctor's own shard is searched, so switching to a doctor on another shard finds no row
+        appointmentShardRouter.bindForWrite(appointment.getDoctor().getId());
 
-        // Check doctor availability if appointment time changed
-        if (!Objects.equals(existing.getAppointmentTime(), appointment.getAppointmentTime())) {
-            if (!validateAppointment(appointment)) {
-                throw new RuntimeException("Doctor is unavailable at the requested time");
-            }
+        // Overlap check ignores this appointment's own slot
+        if (!validateAppointment(appointment)) {
+            throw new RuntimeException("Doctor is unavailable at the requested time");
         }
 
-        return appointmentRepository.save(appointment);
+        int updated = appointmentRepository.rescheduleForPatient(
+                appointment.getId(),
+                patientId,
+                appointment.getDoctor().getId(),
+                appointment.getAppointmentTime()
+        );
+        if (updated > 0) {
+            auditService.record(AuditService.RESCHEDULED, appointment.getId(), appointment.getDoctor().getId(),
+                    patientId, "time=" + appointment.getAppointmentTime());
+        }
+        return updated;
     }
 
     // ------------------- CANCEL -------------------
-    @Transactional
+    // Soft cancel: status becomes 2 so the row stays available for history and analytics.
+    // The owners are looked up before the write transaction: with several shards that lookup
+    // queries each of them, and the transaction's connection must not be held meanwhile.
     public ResponseEntity<Map<String, String>> cancelAppointment(Long id, String token) {
         Map<String, String> response = new HashMap<>();
         if (id == null || token == null || token.isBlank()) {
@@ -90,33 +133,48 @@ public class AppointmentService {
             return ResponseEntity.badRequest().body(response);
         }
 
-        Optional<Appointment> existing = appointmentRepository.findById(id);
-        if (existing.isEmpty()) {
-            response.put("message", "Appointment not found.");
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
-        }
-
         Long patientIdFromToken;
         try {
-            patientIdFromToken = tokenService.extractPatientId(token);
+            patientIdFromToken = tokenService.extractUserId(token);
         } catch (Exception ex) {
             response.put("message", "Invalid or expired token.");
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
         }
 
-        if (!Objects.equals(existing.get().getPatient().getId(), patientIdFromToken)) {
-            response.put("message", "Unauthorized cancel attempt.");
-            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(response);
+        Optional<AppointmentRepository.Owners> owners =
+                appointmentShardRouter.findOnAnyShard(() -> appointmentRepository.findOwnersById(id));
+        if (owners.isEmpty()) {
+            response.put("message", "Appointment not found.");
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
         }
+        Long doctorId = owners.get().getDoctorId();
+
+        return transactionTemplate.execute(status -> {
+            appointmentShardRouter.bindForWrite(doctorId);
+            if (appointmentRepository.cancelForPatient(id, patientIdFromToken) > 0) {
+                auditService.record(AuditService.CANCELLED, id, doctorId, patientIdFromToken, null);
+                response.put("message", "Appointment canceled successfully.");
+                return ResponseEntity.ok(response);
+            }
 
-        appointmentRepository.delete(existing.get());
-        response.put("message", "Appointment canceled successfully.");
-        return ResponseEntity.ok(response);
+            // Nothing updated: one extra lookup on the failure path only, to pick the right error
+            if (!appointmentRepository.existsById(id)) {
+                response.put("message", "Appointment not found.");
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+            }
+            if (!appointmentRepository.existsByIdAndPatient_Id(id, patientIdFromToken)) {
+                response.put("message", "Unauthorized cancel attempt.");
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(response);
+            }
+            response.put("message", "Appointment is no longer scheduled.");
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        });
     }
 
     // ------------------- GET APPOINTMENTS -------------------
     @Transactional(readOnly = true)
     public List<Appointment> getAppointments(Long doctorId, String patientName, LocalDate date) {
+        appointmentShardRouter.bindForRead(doctorId);
         LocalDateTime start = date.atStartOfDay();
         LocalDateTime end = date.plusDays(1).atStartOfDay();
 
@@ -129,10 +187,60 @@ public class AppointmentService {
         return appointmentRepository.findByDoctorIdAndAppointmentTimeBetween(doctorId, start, end);
     }
 
+    // Streamed day view: same JSON as {"appointments": getAppointments(...)}, written row by row
+    @Transactional(readOnly = true)
+    public void writeAppointments(Long doctorId, String patientName, LocalDate date, OutputStream out) throws IOException {
+        appointmentShardRouter.bindForRead(doctorId);
+        LocalDateTime start = date.atStartOfDay();
+        LocalDateTime end = date.plusDays(1).atStartOfDay();
+
+        try (Stream<Appointment> appointments = patientName != null && !patientName.trim().isEmpty()
+                ? appointmentRepository.streamByDoctorIdAndPatientNameAndAppointmentTimeBetween(doctorId, patientName.trim(), start, end)
+                : appointmentRepository.streamByDoctorIdAndAppointmentTimeBetween(doctorId, start, end)) {
+            // The doctor is the same on every row and stays attached; patients are dropped as they are written
+            jsonStreamWriter.writeArray(out, "appointments", appointments, AppointmentResponse::from, Appointment::getPatient);
+        }
+    }
+
+    // Ids only, for callers that need to look up related documents for a doctor's day
+    @Transactional(readOnly = true)
+    public List<Long> getAppointmentIds(Long doctorId, LocalDate date) {
+        appointmentShardRouter.bindForRead(doctorId);
+        return appointmentRepository.findIdsByDoctorIdAndAppointmentTimeBetween(
+                doctorId, date.atStartOfDay(), date.plusDays(1).atStartOfDay()
+        );
+    }
+
+    // The ids (hot or archived) that are this doctor's appointments; the rest are dropped
+    @Transactional(readOnly = true)
+    public List<Long> filterDoctorAppointmentIds(Long doctorId, Collection<Long> appointmentIds) {
+        appointmentShardRouter.bindForRead(doctorId);
+        List<Long> owned = new ArrayList<>(appointmentRepository.findIdsByIdInAndDoctor_Id(appointmentIds, doctorId));
+        if (owned.size() < appointmentIds.size()) {
+            owned.addAll(archivedAppointmentRepository.findIdsByIdInAndDoctorId(appointmentIds, doctorId));
+        }
+        return owned;
+    }
+
     // ------------------- CHANGE STATUS -------------------
-    @Transactional
+    // Id only: the owners are looked up first, outside the write transaction as in cancelAppointment
     public boolean changeStatus(long id, int status) {
-        return appointmentRepository.updateStatus(status, id) > 0;
+        Optional<AppointmentRepository.Owners> owners =
+                appointmentShardRouter.findOnAnyShard(() -> appointmentRepository.findOwnersById(id));
+        if (owners.isEmpty()) {
+            return false;
+        }
+        Long doctorId = owners.get().getDoctorId();
+        Long patientId = owners.get().getPatientId();
+
+        return Boolean.TRUE.equals(transactionTemplate.execute(tx -> {
+            appointmentShardRouter.bindForWrite(doctorId);
+            if (appointmentRepository.updateStatus(status, id) == 0) {
+                return false;
+            }
+            auditService.record(AuditService.STATUS_CHANGED, id, doctorId, patientId, "status=" + status);
+            return true;
+        }));
     }
 
     // ------------------- VALIDATE -------------------
@@ -152,12 +260,13 @@ public class AppointmentService {
             return false;
         }
 
-        // Prevent overlap within +-30 minutes for the same doctor
-        List<Appointment> existing = appointmentRepository.findByDoctorIdAndAppointmentTimeBetween(
-                appointment.getDoctor().getId(),
-                appointment.getAppointmentTime().minusMinutes(30),
-                appointment.getAppointmentTime().plusMinutes(30)
-        );
+        // Prevent overlap within +-30 minutes for the same doctor (cancelled slots are free)
+        List<Appointment> existing = appointmentShardRouter.onDoctorShard(appointment.getDoctor().getId(), () ->
+                appointmentRepository.findActiveByDoctorIdAndAppointmentTimeBetween(
+                        appointment.getDoctor().getId(),
+                        appointment.getAppointmentTime().minusMinutes(30),
+                        appointment.getAppointmentTime().plusMinutes(30)
+                ));
 
         // If updating, allow the existing appointment itself
         if (appointment.getId() != null) {
@@ -167,24 +276,6 @@ public class AppointmentService {
         return existing.isEmpty();
     }
 
-    @Transactional
-    public boolean markPrescriptionAdded(Long appointmentId) {
-        if (appointmentId == null) return false;
-
-        Optional<Appointment> appointmentOpt = appointmentRepository.findById(appointmentId);
-        if (appointmentOpt.isPresent()) {
-            Appointment appointment = appointmentOpt.get();
-
-            // If your Appointment entity does not have a 'prescriptionAdded' field,
-            // replace the next two lines with the appropriate logic or remove this method.
-            appointment.setPrescriptionAdded(true);
-            appointmentRepository.save(appointment);
-
-            return true;
-        }
-        return false;
-    }
-
     // ------------------- HELPERS -------------------
     private void validateEntitiesOrThrow(Appointment appointment) {
         if (appointment == null
@@ -0,0 +1,189 @@
+package com.project.back_end.services;
+
+import com.project.back_end.config.ShardContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Rebalancing tool: moves one doctor's appointments (hot and archived) to another shard.
+ *
+ * 1. flag the doctor as migrating, so every instance refuses new writes for them
+ * 2. copy the rows in id batches (INSERT ... ON DUPLICATE KEY UPDATE, so a re-run after a
+ *    failure is safe and refreshes rows that changed on the source since the last copy)
+ * 3. point the shard map at the target and clear the flag
+ * 4. delete the rows from the source shard
+ *
+ * Reads keep working throughout: until step 3 they are served from the source, and
+ * patient-history scatter keeps only the copy on the shard the map points at.
+ */
+@Service
+public class AppointmentShardMigrationService {
+
+    private static final Logger log = LoggerFactory.getLogger(AppointmentShardMigrationService.class);
+
+    private static final List<String> APPOINTMENT_COLUMNS =
+            List.of("id", "doctor_id", "patient_id", "appointment_time", "status", "prescription_added");
+    private static final List<String> ARCHIVE_COLUMNS =
+            List.of("id", "doctor_id", "patient_id", "appointment_time", "status", "prescription_added", "archived_at");
+
+    private final AppointmentShardRouter appointmentShardRouter;
+    private final JdbcTemplate jdbcTemplate;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private volatile Map<String, Object> lastRun = Map.of();
+
+    @Value("${appointment.shards.migration-batch-size:500}")
+    private int batchSize;
+
+    // Long enough for every instance to pick up the migrating flag before rows are copied
+    @Value("${appointment.shards.refresh-interval-ms:10000}")
+    private long refreshIntervalMs;
+
+    public AppointmentShardMigrationService(AppointmentShardRouter appointmentShardRouter,
+                                            JdbcTemplate jdbcTemplate) {
+        this.appointmentShardRouter = appointmentShardRouter;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    public Map<String, Object> getLastRun() {
+        return lastRun;
+    }
+
+    @Async
+    public void migrate(Long doctorId, String targetShard) {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        String sourceShard = appointmentShardRouter.shardFor(doctorId);
+        Map<String, Object> run = new LinkedHashMap<>();
+        run.put("doctorId", doctorId);
+        run.put("from", sourceShard);
+        run.put("to", targetShard);
+        run.put("startedAt", LocalDateTime.now().toString());
+        run.put("state", "running");
+        lastRun = run;
+        try {
+            if (sourceShard.equals(targetShard)) {
+                run.put("state", "unchanged");
+                return;
+            }
+            appointmentShardRouter.assign(doctorId, sourceShard, true);
+            Thread.sleep(refreshIntervalMs);
+
+            long copied = copy("appointment", APPOINTMENT_COLUMNS, doctorId, sourceShard, targetShard)
+                    + copy("appointment_archive", ARCHIVE_COLUMNS, doctorId, sourceShard, targetShard);
+            appointmentShardRouter.assign(doctorId, targetShard, false);
+
+            long deleted = delete("appointment", doctorId, sourceShard)
+                    + delete("appointment_archive", doctorId, sourceShard);
+            run.put("copied", copied);
+            run.put("deleted", deleted);
+            run.put("state", "done");
+            log.info("Moved {} appointments of doctor {} from {} to {}", copied, doctorId, sourceShard, targetShard);
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            // The doctor stays flagged on the source shard; re-running the move resumes it
+            log.error("Moving doctor {} from {} to {} failed", doctorId, sourceShard, targetShard, e);
+            run.put("state", "failed");
+            run.put("error", String.valueOf(e.getMessage()));
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * Second half of a sharded doctor delete, off the admin's request thread:
+     * waits until every instance has seen the doctor's booking block, then runs
+     * {@code deleteRest} (late bookings and the doctor row) and drops the map
+     * entry. If that fails the block is lifted, since the doctor still exists.
+     */
+    @Async
+    public void finishDoctorDelete(Long doctorId, long blockedAt, Runnable deleteRest) {
+        boolean deleted = false;
+        try {
+            Thread.sleep(Math.max(0, blockedAt + refreshIntervalMs - System.currentTimeMillis()));
+            deleteRest.run();
+            deleted = true;
+            appointmentShardRouter.unassign(doctorId);
+            log.info("Deleted doctor {}", doctorId);
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            log.error("Deleting doctor {} failed", doctorId, e);
+        } finally {
+            if (!deleted) {
+                appointmentShardRouter.clearMigrating(doctorId);
+            }
+        }
+    }
+
+    // Row counts per shard, to decide what to move
+    public Map<String, Long> getShardSizes() {
+        Map<String, Long> sizes = new LinkedHashMap<>();
+        for (String shard : appointmentShardRouter.getShardNames()) {
+            sizes.put(shard, ShardContext.onShard(shard,
+                    () -> jdbcTemplate.queryForObject("SELECT COUNT(*) FROM appointment", Long.class)));
+        }
+        return sizes;
+    }
+
+    // ------------------- HELPERS -------------------
+
+    private long copy(String table, List<String> columns, Long doctorId, String sourceShard, String targetShard) {
+        String select = "SELECT " + String.join(", ", columns) + " FROM " + table
+                + " WHERE doctor_id = ? AND id > ? ORDER BY id LIMIT ?";
+        String insert = "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES ("
+                + String.join(", ", columns.stream().map(column -> "?").toList()) + ") ON DUPLICATE KEY UPDATE "
+                + String.join(", ", columns.stream().filter(column -> !column.equals("id"))
+                        .map(column -> column + " = VALUES(" + column + ")").toList());
+
+        long copied = 0;
+        long lastId = 0;
+        while (true) {
+            long afterId = lastId;
+            List<Map<String, Object>> rows = ShardContext.onShard(sourceShard,
+                    () -> jdbcTemplate.queryForList(select, doctorId, afterId, batchSize));
+            if (rows.isEmpty()) {
+                return copied;
+            }
+            List<Object[]> values = rows.stream()
+                    .map(row -> columns.stream().map(row::get).toArray())
+                    .toList();
+            ShardContext.onShard(targetShard, () -> jdbcTemplate.batchUpdate(insert, values));
+            copied += rows.size();
+            lastId = ((Number) rows.get(rows.size() - 1).get("id")).longValue();
+            if (rows.size() < batchSize) {
+                return copied;
+            }
+        }
+    }
+
+    private long delete(String table, Long doctorId, String sourceShard) {
+        String delete = "DELETE FROM " + table + " WHERE doctor_id = ? LIMIT ?";
+        long deleted = 0;
+        while (true) {
+            int batch = ShardContext.onShard(sourceShard, () -> jdbcTemplate.update(delete, doctorId, batchSize));
+            deleted += batch;
+            if (batch < batchSize) {
+                return deleted;
+            }
+        }
+    }
+}
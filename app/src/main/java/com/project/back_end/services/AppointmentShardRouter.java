@@ -0,0 +1,204 @@
+package com.project.back_end.services;
+
+import com.project.back_end.config.AppointmentShards;
+import com.project.back_end.config.QueryBudgetContext;
+import com.project.back_end.config.ReplicaRoutingContext;
+import com.project.back_end.config.ShardContext;
+import com.project.back_end.models.DoctorShard;
+import com.project.back_end.repo.DoctorShardRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Doctor id -> appointment shard. Doctors in the doctor_shard map live where
+ * it says; everyone else is hashed over the first {@code hash-shards} shards,
+ * so adding a shard never moves existing doctors (the rebalancing tool does).
+ *
+ * Doctor-scoped work binds its transaction to the doctor's shard; patient-scoped
+ * reads scatter to every shard in parallel and are merged by the caller.
+ * With a single shard the work runs directly on the application DataSource
+ * (patient-scoped reads still in one read-only transaction).
+ */
+@Service
+public class AppointmentShardRouter {
+
+    private final AppointmentShards appointmentShards;
+    private final DoctorShardRepository doctorShardRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final int hashShards;
+
+    private volatile Map<Long, DoctorShard> shardMap = Map.of();
+
+    @Value("${appointment.shards.scatter-timeout-ms:5000}")
+    private long scatterTimeoutMs;
+
+    public AppointmentShardRouter(AppointmentShards appointmentShards,
+                                  DoctorShardRepository doctorShardRepository,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${appointment.shards.hash-shards:0}") int hashShards) {
+        this.appointmentShards = appointmentShards;
+        this.doctorShardRepository = doctorShardRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        int shardCount = appointmentShards.getNames().size();
+        this.hashShards = hashShards > 0 ? Math.min(hashShards, shardCount) : shardCount;
+    }
+
+    public boolean isSharded() {
+        return appointmentShards.isSharded();
+    }
+
+    public List<String> getShardNames() {
+        return appointmentShards.getNames();
+    }
+
+    public String shardFor(Long doctorId) {
+        DoctorShard entry = shardMap.get(doctorId);
+        if (entry != null) {
+            return entry.getShard();
+        }
+        return appointmentShards.getNames().get(Math.floorMod(doctorId, hashShards));
+    }
+
+    public boolean isMigrating(Long doctorId) {
+        DoctorShard entry = shardMap.get(doctorId);
+        return entry != null && entry.isMigrating();
+    }
+
+    // ------------------- DOCTOR-SCOPED -------------------
+
+    // Call first thing inside a @Transactional method, before any appointment query
+    public void bindForRead(Long doctorId) {
+        if (isSharded()) {
+            ShardContext.bindToTransaction(shardFor(doctorId));
+        }
+    }
+
+    // Same as bindForRead, but refused while the doctor's appointments are being moved
+    public void bindForWrite(Long doctorId) {
+        if (isSharded()) {
+            if (isMigrating(doctorId)) {
+                throw new IllegalStateException("Appointments of this doctor are being moved; retry shortly");
+            }
+            ShardContext.bindToTransaction(shardFor(doctorId));
+        }
+    }
+
+    // For callers outside a transaction: every repository call in action goes to the doctor's shard
+    public <T> T onDoctorShard(Long doctorId, Supplier<T> action) {
+        if (!isSharded()) {
+            return action.get();
+        }
+        return ShardContext.onShard(shardFor(doctorId), action);
+    }
+
+    // ------------------- PATIENT-SCOPED -------------------
+
+    /**
+     * Runs {@code perShard} on every shard in parallel, each in a read-only
+     * transaction, and concatenates the results in shard order. A row is kept
+     * only from the shard its doctor maps to: while a doctor is being moved the
+     * rows exist on both shards, and the map says which copy is current.
+     */
+    public <T> List<T> scatter(Supplier<List<T>> perShard, Function<T, Long> doctorOf) {
+        if (!isSharded()) {
+            return readOnlyTransaction.execute(status -> perShard.get());
+        }
+        List<T> merged = new ArrayList<>();
+        for (List<T> part : onEveryShard(shard -> perShard.get().stream()
+                .filter(row -> shard.equals(shardFor(doctorOf.apply(row))))
+                .toList())) {
+            merged.addAll(part);
+        }
+        return merged;
+    }
+
+    // First shard (in shard order) where the lookup finds something
+    public <T> Optional<T> findOnAnyShard(Supplier<Optional<T>> lookup) {
+        if (!isSharded()) {
+            return lookup.get();
+        }
+        return onEveryShard(shard -> lookup.get()).stream()
+                .flatMap(Optional::stream)
+                .findFirst();
+    }
+
+    private <R> List<R> onEveryShard(Function<String, R> work) {
+        List<CompletableFuture<R>> futures = appointmentShards.getNames().stream()
+                .map(shard -> CompletableFuture.supplyAsync(QueryBudgetContext.propagate(ReplicaRoutingContext.propagate(() ->
+                                ShardContext.onShard(shard, () -> readOnlyTransaction.execute(status -> work.apply(shard))))),
+                        executor).orTimeout(scatterTimeoutMs, TimeUnit.MILLISECONDS))
+                .toList();
+        try {
+            return futures.stream().map(CompletableFuture::join).toList();
+        } catch (CompletionException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw new RuntimeException("Appointment shard query failed", e.getCause());
+        }
+    }
+
+    // ------------------- SHARD MAP -------------------
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${appointment.shards.refresh-interval-ms:10000}")
+    public void refreshShardMap() {
+        if (!isSharded()) {
+            return;
+        }
+        // The map decides where writes go, so never read it from a lagging replica
+        shardMap = ReplicaRoutingContext.onPrimary(() -> doctorShardRepository.findAll()).stream()
+                .collect(Collectors.toUnmodifiableMap(DoctorShard::getDoctorId, entry -> entry));
+    }
+
+    public void assign(Long doctorId, String shard, boolean migrating) {
+        if (!appointmentShards.getNames().contains(shard)) {
+            throw new IllegalArgumentException("Unknown appointment shard " + shard);
+        }
+        ShardContext.onShard(AppointmentShards.DEFAULT_SHARD,
+                () -> doctorShardRepository.save(new DoctorShard(doctorId, shard, migrating)));
+        refreshShardMap();
+    }
+
+    // Lets the doctor be booked again after a move or delete that did not finish
+    public void clearMigrating(Long doctorId) {
+        assign(doctorId, shardFor(doctorId), false);
+    }
+
+    // Drops a deleted doctor's entry
+    public void unassign(Long doctorId) {
+        ShardContext.onShard(AppointmentShards.DEFAULT_SHARD, () -> {
+            doctorShardRepository.deleteById(doctorId);
+            return null;
+        });
+        refreshShardMap();
+    }
+
+    public Map<Long, DoctorShard> getShardMap() {
+        return shardMap;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,194 @@
+package com.project.back_end.services;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Audit trail for appointment and prescription writes, kept off the request path.
+ *
+ * {@link #record} only allocates an event and, once the caller's transaction
+ * has committed, offers it to a lock-free ring buffer; rolled-back work is never
+ * audited. A single writer thread drains the buffer and batch-inserts into
+ * audit_event. When the buffer is full the event is written to the
+ * "audit.overflow" log instead of blocking the request. On shutdown the writer
+ * stops and whatever is left in the buffer is flushed; events recorded after
+ * that go to the overflow log as well.
+ */
+@Service
+public class AuditService {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditService.class);
+    private static final Logger overflowLog = LoggerFactory.getLogger("audit.overflow");
+
+    private static final String INSERT =
+            "INSERT INTO audit_event (event_type, appointment_id, doctor_id, patient_id, detail, occurred_at) "
+                    + "VALUES (?, ?, ?, ?, ?, ?)";
+    private static final int MAX_DETAIL = 500;
+    private static final int MAX_WRITE_ATTEMPTS = 5;
+
+    public static final String BOOKED = "BOOKED";
+    public static final String RESCHEDULED = "RESCHEDULED";
+    public static final String CANCELLED = "CANCELLED";
+    public static final String STATUS_CHANGED = "STATUS_CHANGED";
+    public static final String PRESCRIPTION_ISSUED = "PRESCRIPTION_ISSUED";
+
+    public record Event(String type, Long appointmentId, Long doctorId, Long patientId,
+                        String detail, LocalDateTime occurredAt) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AuditRingBuffer<Event> buffer;
+    private final int batchSize;
+    private final long idleParkNanos;
+
+    private final LongAdder recorded = new LongAdder();
+    private final LongAdder overflowed = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failedBatches = new LongAdder();
+
+    private volatile boolean running;
+    // Set once the shutdown flush starts; nothing drains the buffer after it
+    private volatile boolean closed;
+    private Thread writer;
+
+    public AuditService(JdbcTemplate jdbcTemplate,
+                        @Value("${audit.buffer-size:16384}") int bufferSize,
+                        @Value("${audit.batch-size:500}") int batchSize,
+                        @Value("${audit.flush-interval-ms:200}") long flushIntervalMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.buffer = new AuditRingBuffer<>(bufferSize);
+        this.batchSize = batchSize;
+        this.idleParkNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+    }
+
+    // ------------------- RECORD -------------------
+
+    public void record(String type, Long appointmentId, Long doctorId, Long patientId, String detail) {
+        Event event = new Event(type, appointmentId, doctorId, patientId, detail, LocalDateTime.now());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publish(event);
+                }
+            });
+        } else {
+            publish(event);
+        }
+    }
+
+    private void publish(Event event) {
+        recorded.increment();
+        if (closed || !buffer.offer(event)) {
+            overflowed.increment();
+            overflowLog.warn("{}", event);
+        }
+    }
+
+    // ------------------- WRITER -------------------
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        writer = Thread.ofPlatform().name("audit-writer").daemon(true).start(this::drainLoop);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(writer);
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+        if (writer.isAlive()) {
+            log.warn("Audit writer did not stop in time; {} events left unwritten", buffer.size());
+            return;
+        }
+        // Events published after the writer exited go out here, later ones to the overflow log
+        closed = true;
+        int flushed = 0;
+        List<Event> batch = new ArrayList<>(batchSize);
+        while (buffer.drainTo(batch, batchSize) > 0) {
+            write(batch);
+            flushed += batch.size();
+            batch.clear();
+        }
+        if (flushed > 0) {
+            log.info("Flushed {} audit events on shutdown", flushed);
+        }
+    }
+
+    private void drainLoop() {
+        List<Event> batch = new ArrayList<>(batchSize);
+        while (true) {
+            int drained = buffer.drainTo(batch, batchSize);
+            if (drained > 0) {
+                write(batch);
+                batch.clear();
+            } else if (running) {
+                LockSupport.parkNanos(idleParkNanos);
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void write(List<Event> batch) {
+        long backoffMillis = 100;
+        for (int attempt = 1; attempt <= MAX_WRITE_ATTEMPTS; attempt++) {
+            try {
+                jdbcTemplate.batchUpdate(INSERT, batch, batch.size(), (ps, event) -> {
+                    ps.setString(1, event.type());
+                    ps.setObject(2, event.appointmentId());
+                    ps.setObject(3, event.doctorId());
+                    ps.setObject(4, event.patientId());
+                    ps.setString(5, truncate(event.detail()));
+                    ps.setTimestamp(6, Timestamp.valueOf(event.occurredAt()));
+                });
+                written.add(batch.size());
+                return;
+            } catch (Exception e) {
+                log.warn("Audit batch of {} failed (attempt {}/{}): {}",
+                        batch.size(), attempt, MAX_WRITE_ATTEMPTS, e.getMessage());
+                if (attempt < MAX_WRITE_ATTEMPTS) {
+                    // Producers keep filling the buffer meanwhile; a long outage ends in overflow, not blocking
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(backoffMillis));
+                    backoffMillis *= 2;
+                }
+            }
+        }
+        failedBatches.increment();
+        batch.forEach(event -> overflowLog.warn("{}", event));
+    }
+
+    private static String truncate(String detail) {
+        return detail == null || detail.length() <= MAX_DETAIL ? detail : detail.substring(0, MAX_DETAIL);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("capacity", buffer.capacity());
+        stats.put("pending", buffer.size());
+        stats.put("recorded", recorded.sum());
+        stats.put("written", written.sum());
+        stats.put("overflowed", overflowed.sum());
+        stats.put("failedBatches", failedBatches.sum());
+        stats.put("writerAlive", writer != null && writer.isAlive());
+        return stats;
+    }
+}
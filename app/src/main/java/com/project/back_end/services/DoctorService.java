@@ -1,37 +1,86 @@
 package com.project.back_end.services;
 
+import com.project.back_end.config.ReplicaRoutingContext;
+import com.project.back_end.DTO.DoctorResponse;
 import com.project.back_end.models.Appointment;
 import com.project.back_end.models.Doctor;
 import com.project.back_end.repo.AppointmentRepository;
+import com.project.back_end.repo.ArchivedAppointmentRepository;
 import com.project.back_end.repo.DoctorRepository;
+import com.project.back_end.repo.PrescriptionOutboxRepository;
+import io.micrometer.core.annotation.Timed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 // Java
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class DoctorService {
 
+    private static final Logger log = LoggerFactory.getLogger(DoctorService.class);
+
     private final DoctorRepository doctorRepository;
     private final AppointmentRepository appointmentRepository;
     private final TokenService tokenService;
     private final PasswordEncoder passwordEncoder; // added
+    private final ArchivedAppointmentRepository archivedAppointmentRepository;
+    private final PrescriptionCleanupService prescriptionCleanupService;
+    private final PrescriptionOutboxRepository prescriptionOutboxRepository;
+    private final PrescriptionRollupService prescriptionRollupService;
+    private final TransactionTemplate transactionTemplate;
+    private final AppointmentShardRouter appointmentShardRouter;
+    private final JsonStreamWriter jsonStreamWriter;
+    private final AppointmentShardMigrationService appointmentShardMigrationService;
+    private final ShardReplicationService shardReplicationService;
+
+    @Value("${doctor.delete.batch-size:500}")
+    private int deleteBatchSize;
+
 
     public DoctorService(DoctorRepository doctorRepository,
                          AppointmentRepository appointmentRepository,
                          TokenService tokenService,
-                         PasswordEncoder passwordEncoder) { // added
+                         PasswordEncoder passwordEncoder, // added
+                         ArchivedAppointmentRepository archivedAppointmentRepository,
+                         PrescriptionCleanupService prescriptionCleanupService,
+                         PrescriptionOutboxRepository prescriptionOutboxRepository,
+                         PrescriptionRollupService prescriptionRollupService,
+                         TransactionTemplate transactionTemplate,
+                         AppointmentShardRouter appointmentShardRouter,
+                         JsonStreamWriter jsonStreamWriter,
+                         AppointmentShardMigrationService appointmentShardMigrationService,
+                         ShardReplicationService shardReplicationService) {
         this.doctorRepository = doctorRepository;
         this.appointmentRepository = appointmentRepository;
         this.tokenService = tokenService;
         this.passwordEncoder = passwordEncoder; // added
+        this.archivedAppointmentRepository = archivedAppointmentRepository;
+        this.prescriptionCleanupService = prescriptionCleanupService;
+        this.prescriptionOutboxRepository = prescriptionOutboxRepository;
+        this.prescriptionRollupService = prescriptionRollupService;
+        this.transactionTemplate = transactionTemplate;
+        this.appointmentShardRouter = appointmentShardRouter;
+        this.jsonStreamWriter = jsonStreamWriter;
+        this.appointmentShardMigrationService = appointmentShardMigrationService;
+        this.shardReplicationService = shardReplicationService;
     }
 
     /**
@@ -55,7 +104,7 @@ public int saveDoctor(Doctor doctor) {
         }
         if (exists) return 0;
 
-        doctorRepository.save(doctor);
+        shardReplicationService.replicateDoctor(doctorRepository.save(doctor));
         return 1;
     } catch (Exception e) {
         return -1;
@@ -83,7 +132,7 @@ public int saveDoctor(Doctor doctor) {
                     return 0;
                 }
             }
-            doctorRepository.save(doctor);
+            shardReplicationService.replicateDoctor(doctorRepository.save(doctor));
             return 1;
         } catch (Exception e) {
             return 0;
@@ -91,27 +140,106 @@ public int saveDoctor(Doctor doctor) {
     }
 
     /**
-     * Delete a doctor and all related appointments
+     * Delete a doctor and all related appointments (hot and archived).
+     * Appointments go in id chunks, each in its own short transaction; the
+     * matching Mongo prescriptions are removed asynchronously per chunk.
+     * With several shards the doctor is blocked from booking first, and the
+     * late bookings and the doctor row are removed in the background once every
+     * instance has seen the block.
      * @return -1 if not found, 1 if success, 0 if error
      */
-    @Transactional
     public int deleteDoctor(Long id) {
         if (id == null) return -1;
 
-        Optional<Doctor> doctor = doctorRepository.findById(id);
-        if (doctor.isEmpty()) {
+        if (!doctorRepository.existsById(id)) {
             return -1;
         }
+        boolean sharded = appointmentShardRouter.isSharded();
+        boolean blocked = false;
         try {
-            // Use the repository method that exists
-            List<Appointment> related = appointmentRepository.findByDoctor_Id(id);
-            if (!related.isEmpty()) {
-                appointmentRepository.deleteAll(related);
+            long blockedAt = System.currentTimeMillis();
+            if (sharded) {
+                // Same flag as a shard move: every instance refuses new bookings for the doctor
+                appointmentShardRouter.assign(id, appointmentShardRouter.shardFor(id), true);
+                blocked = true;
+            }
+            deleteAppointments(id, true);
+            if (sharded) {
+                // Bookings that got in before every instance saw the flag, then the doctor row on shard-0
+                appointmentShardMigrationService.finishDoctorDelete(id, blockedAt, () -> {
+                    deleteAppointments(id, false);
+                    doctorRepository.deleteById(id);
+                    shardReplicationService.removeDoctor(id);
+                    prescriptionRollupService.deleteForDoctor(id);
+                });
+                blocked = false;
+            } else {
+                deleteTailWithDoctor(id);
+                prescriptionRollupService.deleteForDoctor(id);
             }
-            doctorRepository.deleteById(id);
             return 1;
         } catch (Exception e) {
+            log.error("Deleting doctor {} failed", id, e);
             return 0;
+        } finally {
+            if (blocked) {
+                appointmentShardRouter.clearMigrating(id);
+            }
+        }
+    }
+
+    // Appointment, archive and outbox rows all live on the doctor's shard
+    private void deleteAppointments(Long id, boolean withArchive) {
+        PageRequest chunk = PageRequest.of(0, deleteBatchSize);
+        appointmentShardRouter.onDoctorShard(id, () -> {
+            deleteAppointmentsInChunks(() -> appointmentRepository.findIdsByDoctorId(id, chunk),
+                    appointmentRepository::deleteByIdIn);
+            if (withArchive) {
+                deleteAppointmentsInChunks(() -> archivedAppointmentRepository.findIdsByDoctorId(id, chunk),
+                        archivedAppointmentRepository::deleteByIdIn);
+            }
+            return null;
+        });
+    }
+
+    // A booking committed after the last chunk would fail the doctor delete on its foreign key,
+    // so the remaining appointments go in the same transaction as the doctor row
+    private void deleteTailWithDoctor(Long id) {
+        List<Long> tail = transactionTemplate.execute(status -> {
+            // Held until commit: concurrent bookings block on it and then fail, instead of slipping in
+            doctorRepository.lockById(id);
+            List<Long> ids = appointmentRepository.findIdsByDoctorId(id, Pageable.unpaged());
+            if (!ids.isEmpty()) {
+                appointmentRepository.deleteByIdIn(ids);
+                prescriptionOutboxRepository.deleteByAppointmentIdIn(ids);
+            }
+            doctorRepository.deleteById(id);
+            return ids;
+        });
+        if (tail != null && !tail.isEmpty()) {
+            prescriptionCleanupService.deleteForAppointments(tail);
+        }
+    }
+
+    private void deleteAppointmentsInChunks(Supplier<List<Long>> nextChunk, ToIntFunction<List<Long>> delete) {
+        while (true) {
+            List<Long> ids = transactionTemplate.execute(status -> {
+                List<Long> chunkIds = nextChunk.get();
+                if (!chunkIds.isEmpty()) {
+                    delete.applyAsInt(chunkIds);
+                    // Undelivered outbox entries would recreate the prescriptions we are removing
+                    prescriptionOutboxRepository.deleteByAppointmentIdIn(chunkIds);
+                }
+                return chunkIds;
+            });
+            if (ids == null || ids.isEmpty()) {
+                return;
+            }
+            // Only after the chunk committed, so prescriptions never outlive a rollback
+            prescriptionCleanupService.deleteForAppointments(ids);
+            if (ids.size() < deleteBatchSize) {
+                return;
+            }
         }
     }
 
@@ -122,7 +250,8 @@ public int saveDoctor(Doctor doctor) {
 public String validateDoctor(String email, String password) {
     if (email == null || password == null) return null;
 
-    Doctor doctor = doctorRepository.findByEmail(email);
+    // On the primary, so a login right after the account is created finds it
+    Doctor doctor = ReplicaRoutingContext.onPrimary(() -> doctorRepository.findByEmail(email));
     if (doctor != null && passwordMatches(password, doctor.getPassword())) {
         return tokenService.generateToken(doctor.getId().toString());
     }
@@ -143,13 +272,14 @@ public String validateDoctor(String email, String password) {
     /**
      * Get doctor availability for a specific date
      */
+    @Timed(value = "clinic.doctor.availability", description = "Free slots for a doctor's day")
     public List<LocalTime> getDoctorAvailability(Long doctorId, LocalDate date) {
-        List<Appointment> appointments = appointmentRepository
-                .findByDoctorIdAndAppointmentTimeBetween(
+        List<Appointment> appointments = appointmentShardRouter.onDoctorShard(doctorId, () -> appointmentRepository
+                .findActiveByDoctorIdAndAppointmentTimeBetween(
                         doctorId,
                         date.atStartOfDay(),
                         date.atTime(23, 59)
-                );
+                ));
 
         List<LocalTime> bookedTimes = appointments.stream()
                 .map(a -> a.getAppointmentTime().toLocalTime())
@@ -171,9 +301,11 @@ public String validateDoctor(String email, String password) {
     }
 
     /**
-     * Filter doctors by name, specialty, and time availability
+     * Filter doctors by name, specialty, and time availability.
+     * Mapped to responses inside the transaction, while availableTimes can still load.
      */
-    public List<Doctor> filterDoctorsByNameSpecialtyAndTime(String name, String specialty, String timePeriod) {
+    @Transactional(readOnly = true)
+    public List<DoctorResponse> filterDoctorsByNameSpecialtyAndTime(String name, String specialty, String timePeriod) {
         // Fetch doctors matching name and specialty
         List<Doctor> doctors = doctorRepository.findByNameContainingIgnoreCaseAndSpecialtyIgnoreCase(
                 name != null ? name : "",
@@ -185,7 +317,7 @@ public String validateDoctor(String email, String password) {
             doctors = filterDoctorByTime(doctors, timePeriod);
         }
 
-        return doctors;
+        return doctors.stream().map(DoctorResponse::from).toList();
     }
 
     /**
@@ -224,4 +356,12 @@ public String validateDoctor(String email, String password) {
     public List<Doctor> getDoctors() {
         return doctorRepository.findAll();
     }
+
+    // Same JSON as {"doctors": getDoctors()}, written row by row without materializing the list
+    @Transactional(readOnly = true)
+    public void writeDoctors(OutputStream out) throws IOException {
+        try (Stream<Doctor> doctors = doctorRepository.streamAllWithAvailableTimes()) {
+            jsonStreamWriter.writeArray(out, "doctors", doctors, DoctorResponse::from);
+        }
+    }
 }
\ No newline at end of file
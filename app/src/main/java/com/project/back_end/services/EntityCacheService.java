@@ -0,0 +1,82 @@
+package com.project.back_end.services;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read access to the Hibernate second-level and query cache regions configured
+ * in {@code ehcache.xml}, plus manual eviction for rows changed outside JPA
+ * (e.g. a direct SQL fix on the doctor table).
+ */
+@Service
+public class EntityCacheService {
+
+    public static final List<String> ENTITY_REGIONS = List.of("doctor", "doctor.availableTimes", "patient", "admin");
+    public static final List<String> QUERY_REGIONS = List.of("login-lookups");
+
+    private final SessionFactory sessionFactory;
+
+    public EntityCacheService(EntityManagerFactory entityManagerFactory) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+    }
+
+    public Map<String, Object> getStats() {
+        Statistics statistics = sessionFactory.getStatistics();
+        if (!statistics.isStatisticsEnabled()) {
+            // The counters would all read zero
+            Map<String, Object> disabled = new LinkedHashMap<>();
+            disabled.put("statisticsEnabled", false);
+            disabled.put("message", "Hibernate statistics disabled; set hibernate.statistics.enabled=true to collect them");
+            return disabled;
+        }
+
+        Map<String, Object> regions = new LinkedHashMap<>();
+        for (String region : ENTITY_REGIONS) {
+            regions.put(region, toMap(statistics.getDomainDataRegionStatistics(region)));
+        }
+        for (String region : QUERY_REGIONS) {
+            regions.put(region, toMap(statistics.getQueryRegionStatistics(region)));
+        }
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("statisticsEnabled", statistics.isStatisticsEnabled());
+        stats.put("regions", regions);
+        stats.put("secondLevelCacheHitCount", statistics.getSecondLevelCacheHitCount());
+        stats.put("secondLevelCacheMissCount", statistics.getSecondLevelCacheMissCount());
+        stats.put("queryCacheHitCount", statistics.getQueryCacheHitCount());
+        stats.put("queryCacheMissCount", statistics.getQueryCacheMissCount());
+        // JDBC statements actually sent since startup; drops as the hit counts rise
+        stats.put("prepareStatementCount", statistics.getPrepareStatementCount());
+        return stats;
+    }
+
+    /**
+     * @return false if {@code region} is not one of the configured regions
+     */
+    public boolean evictRegion(String region) {
+        if (ENTITY_REGIONS.contains(region) || QUERY_REGIONS.contains(region)) {
+            sessionFactory.getCache().evictRegion(region);
+            return true;
+        }
+        return false;
+    }
+
+    private static Map<String, Object> toMap(CacheRegionStatistics region) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        if (region == null) {
+            return map;
+        }
+        map.put("hitCount", region.getHitCount());
+        map.put("missCount", region.getMissCount());
+        map.put("putCount", region.getPutCount());
+        map.put("elementCountInMemory", region.getElementCountInMemory());
+        return map;
+    }
+}
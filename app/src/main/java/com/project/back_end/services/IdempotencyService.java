@@ -0,0 +1,190 @@
+package com.project.back_end.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.back_end.config.ReplicaRoutingContext;
+import com.project.back_end.models.IdempotencyRecord;
+import com.project.back_end.repo.IdempotencyRecordRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Replays the stored response for a repeated {@code Idempotency-Key}.
+ * Recent keys live in a bounded in-memory LRU; the idempotency_record table
+ * is the fallback after eviction or a restart. Both expire after the TTL.
+ * Each record keeps a hash of the request body, and reusing a key with a
+ * different body is rejected with 422 instead of replaying. Bodies are kept
+ * as JSON and go through content negotiation again when replayed, so a retry
+ * gets JSON, CBOR or Smile according to its own Accept header.
+ *
+ * The "still in progress" guard is per instance: two copies of a request
+ * that reach different instances at the same moment can both run. Once
+ * either has finished, its stored record covers every instance.
+ */
+@Service
+public class IdempotencyService {
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyService.class);
+
+    private static final int MAX_KEY_LENGTH = 100;
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final ObjectMapper objectMapper;
+    private final Duration ttl;
+    private final Map<String, IdempotencyRecord> recent;
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    public IdempotencyService(IdempotencyRecordRepository idempotencyRecordRepository,
+                              ObjectMapper objectMapper,
+                              @Value("${idempotency.ttl-minutes:1440}") long ttlMinutes,
+                              @Value("${idempotency.max-entries:10000}") int maxEntries) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.objectMapper = objectMapper;
+        this.ttl = Duration.ofMinutes(ttlMinutes);
+        this.recent = Collections.synchronizedMap(new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, IdempotencyRecord> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+
+    /**
+     * Runs {@code action} once per (scope, userId, key) and replays its response afterwards.
+     * Without a key the action simply runs. 5xx responses are not stored so they can be retried.
+     */
+    public ResponseEntity<?> execute(String scope, Long userId, String key, Object request,
+                                     Supplier<ResponseEntity<?>> action) {
+        if (key == null || key.isBlank()) {
+            return action.get();
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Idempotency-Key is too long"));
+        }
+
+        String scopedKey = scope + ":" + userId + ":" + key;
+        // Hashed before the action runs, which may modify the request object
+        String requestHash = hash(request);
+        IdempotencyRecord stored = find(scopedKey);
+        if (stored != null) {
+            return replay(stored, requestHash);
+        }
+
+        if (!inFlight.add(scopedKey)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("error", "A request with this Idempotency-Key is still in progress"));
+        }
+        try {
+            // The first request may have finished between the lookup and the claim
+            stored = find(scopedKey);
+            if (stored != null) {
+                return replay(stored, requestHash);
+            }
+            ResponseEntity<?> response = action.get();
+            if (!response.getStatusCode().is5xxServerError()) {
+                remember(scopedKey, requestHash, response);
+            }
+            return response;
+        } finally {
+            inFlight.remove(scopedKey);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${idempotency.purge-interval-ms:3600000}")
+    public void purgeExpired() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(ttl);
+        synchronized (recent) {
+            recent.values().removeIf(record -> record.getCreatedAt().isBefore(cutoff));
+        }
+        idempotencyRecordRepository.deleteByCreatedAtBefore(cutoff);
+    }
+
+    // ------------------- HELPERS -------------------
+    private IdempotencyRecord find(String scopedKey) {
+        IdempotencyRecord record = recent.get(scopedKey);
+        if (record == null) {
+            // A lagging replica could miss a just-stored record and let the action run twice
+            record = ReplicaRoutingContext.onPrimary(() -> idempotencyRecordRepository.findById(scopedKey).orElse(null));
+            if (record != null && !isExpired(record)) {
+                recent.put(scopedKey, record);
+            }
+        }
+        return record == null || isExpired(record) ? null : record;
+    }
+
+    private void remember(String scopedKey, String requestHash, ResponseEntity<?> response) {
+        String body;
+        try {
+            body = response.getBody() != null ? objectMapper.writeValueAsString(response.getBody()) : null;
+        } catch (JsonProcessingException e) {
+            log.warn("Response for idempotency key could not be serialized; not storing it", e);
+            return;
+        }
+        MediaType contentType = response.getHeaders().getContentType();
+        IdempotencyRecord record = new IdempotencyRecord(scopedKey, requestHash, response.getStatusCode().value(), body,
+                contentType != null ? contentType.toString() : null, LocalDateTime.now());
+        recent.put(scopedKey, record);
+        try {
+            idempotencyRecordRepository.save(record);
+        } catch (Exception e) {
+            // The in-memory copy still covers quick retries on this instance
+            log.warn("Could not persist idempotency record", e);
+        }
+    }
+
+    private ResponseEntity<?> replay(IdempotencyRecord record, String requestHash) {
+        // Records without a hash (or requests that could not be hashed) are replayed unchecked
+        if (record.getRequestHash() != null && requestHash != null && !record.getRequestHash().equals(requestHash)) {
+            return ResponseEntity.unprocessableEntity()
+                    .body(Map.of("error", "Idempotency-Key was already used with a different request"));
+        }
+        ResponseEntity.BodyBuilder replayed = ResponseEntity.status(record.getStatusCode())
+                .header("Idempotent-Replayed", "true");
+        if (record.getContentType() != null) {
+            replayed.contentType(MediaType.parseMediaType(record.getContentType()));
+        }
+        if (record.getResponseBody() == null) {
+            return replayed.build();
+        }
+        try {
+            // A tree rather than the stored text, so the converter picked for this request encodes it
+            return replayed.body(objectMapper.readTree(record.getResponseBody()));
+        } catch (JsonProcessingException e) {
+            log.warn("Stored idempotent response could not be parsed; replaying it as JSON text", e);
+            return replayed.contentType(MediaType.APPLICATION_JSON).body(record.getResponseBody());
+        }
+    }
+
+    // SHA-256 of the request as JSON, hex encoded
+    private String hash(Object request) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(request));
+            return HexFormat.of().formatHex(digest);
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            log.warn("Request for idempotency key could not be hashed; replays will not be checked", e);
+            return null;
+        }
+    }
+
+    private boolean isExpired(IdempotencyRecord record) {
+        return record.getCreatedAt().isBefore(LocalDateTime.now().minus(ttl));
+    }
+}
@@ -0,0 +1,163 @@
+package com.project.back_end.services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.project.back_end.config.JacksonConfig;
+import com.project.back_end.config.QueryBudgetContext;
+import com.project.back_end.config.ReplicaRoutingContext;
+import jakarta.persistence.EntityManager;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Writes large lists straight from a repository {@link Stream} to the response,
+ * one element at a time, instead of building the whole list (and a Map around
+ * it) before Jackson sees it. Heap use stays at one fetch-size window of rows
+ * plus Jackson's output buffer.
+ *
+ * The format follows the Accept header like the message converters do: JSON by
+ * default, CBOR or Smile for clients that ask for them.
+ *
+ * Call {@link #writeArray} inside the read-only transaction that opened the stream.
+ */
+@Component
+public class JsonStreamWriter {
+
+    // Format picked for the response being written on this thread
+    private static final ThreadLocal<ObjectWriter> FORMAT = new ThreadLocal<>();
+
+    private final Map<MediaType, ObjectWriter> writers = new LinkedHashMap<>();
+    private final EntityManager entityManager;
+
+    public JsonStreamWriter(ObjectMapper objectMapper,
+                            MappingJackson2CborHttpMessageConverter cborConverter,
+                            MappingJackson2SmileHttpMessageConverter smileConverter,
+                            EntityManager entityManager) {
+        // JSON first: it is what */* and unknown types get
+        writers.put(MediaType.APPLICATION_JSON, streamingWriter(objectMapper));
+        writers.put(MediaType.APPLICATION_CBOR, streamingWriter(cborConverter.getObjectMapper()));
+        writers.put(JacksonConfig.APPLICATION_SMILE, streamingWriter(smileConverter.getObjectMapper()));
+        this.entityManager = entityManager;
+    }
+
+    private static ObjectWriter streamingWriter(ObjectMapper objectMapper) {
+        // Flushing after every element would defeat the generator's buffer and gzip
+        return objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    /**
+     * Negotiates the format for the current request and wraps the body for the
+     * MVC async thread it is written on, carrying the replica session over so
+     * read-your-writes still holds, and the request's query budget so its
+     * statements are counted.
+     */
+    public ResponseEntity<StreamingResponseBody> respond(StreamingResponseBody body) {
+        MediaType format = negotiate();
+        ObjectWriter writer = writers.get(format);
+        String session = ReplicaRoutingContext.currentSession();
+        QueryBudgetContext.Tracker queryBudget = QueryBudgetContext.current();
+        StreamingResponseBody wrapped = out -> {
+            ReplicaRoutingContext.setSession(session);
+            QueryBudgetContext.attach(queryBudget);
+            FORMAT.set(writer);
+            try {
+                body.writeTo(out);
+            } finally {
+                FORMAT.remove();
+                QueryBudgetContext.detach();
+                ReplicaRoutingContext.clearSession();
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(format)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+                .body(wrapped);
+    }
+
+    /**
+     * One value in the negotiated format, for a streaming handler's other
+     * answers (errors, small results). Spring MVC only streams handlers that
+     * declare {@code ResponseEntity<StreamingResponseBody>}; with
+     * {@code ResponseEntity<?>} the body would go to Jackson as a bean.
+     */
+    public ResponseEntity<StreamingResponseBody> respond(HttpStatusCode status, Object value) {
+        MediaType format = negotiate();
+        ObjectWriter writer = writers.get(format);
+        return ResponseEntity.status(status)
+                .contentType(format)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+                .body(out -> writer.writeValue(out, value));
+    }
+
+    private MediaType negotiate() {
+        if (!(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes)) {
+            return MediaType.APPLICATION_JSON;
+        }
+        HttpServletRequest request = attributes.getRequest();
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        if (accept == null || accept.isBlank()) {
+            return MediaType.APPLICATION_JSON;
+        }
+        try {
+            List<MediaType> accepted = MediaType.parseMediaTypes(accept);
+            MimeTypeUtils.sortBySpecificity(accepted);
+            for (MediaType type : accepted) {
+                for (MediaType supported : writers.keySet()) {
+                    if (type.includes(supported) && type.getQualityValue() > 0) {
+                        return supported;
+                    }
+                }
+            }
+        } catch (Exception e) {
+            // Malformed Accept: answer in JSON rather than failing the request
+        }
+        return MediaType.APPLICATION_JSON;
+    }
+
+    /**
+     * Writes {"field": [...]}, each entity mapped to its response record. Each
+     * entity (and the related entities given) is detached once written, so the
+     * persistence context does not grow with the result.
+     */
+    @SafeVarargs
+    public final <T> void writeArray(OutputStream out, String field, Stream<T> items,
+                                     Function<T, ?> toResponse, Function<T, ?>... related) throws IOException {
+        ObjectWriter writer = FORMAT.get() != null ? FORMAT.get() : writers.get(MediaType.APPLICATION_JSON);
+        try (JsonGenerator generator = writer.createGenerator(out)) {
+            generator.writeStartObject();
+            generator.writeArrayFieldStart(field);
+            for (T item : (Iterable<T>) items::iterator) {
+                writer.writeValue(generator, toResponse.apply(item));
+                entityManager.detach(item);
+                for (Function<T, ?> relation : related) {
+                    Object entity = relation.apply(item);
+                    if (entity != null) {
+                        entityManager.detach(entity);
+                    }
+                }
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.project.back_end.services;
+
+import com.project.back_end.config.QueryBudgetContext;
+import com.project.back_end.config.ReplicaRoutingContext;
+import com.project.back_end.DTO.AppointmentDTO;
+import com.project.back_end.DTO.PatientResponse;
+import com.project.back_end.repo.PatientRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * What the patient appointments page needs in one response. Patient details
+ * and the appointment history are fetched concurrently on virtual threads.
+ * Each call has its own timeout, and a section that fails or times out is
+ * reported under "errors" instead of failing the whole dashboard.
+ */
+@Service
+public class PatientDashboardService {
+
+    private static final Logger log = LoggerFactory.getLogger(PatientDashboardService.class);
+
+    private final PatientRepository patientRepository;
+    private final PatientService patientService;
+
+    // One virtual thread per call; concurrency against the pools is capped by the datastore bulkheads
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @Value("${patient.dashboard.call-timeout-ms:2000}")
+    private long callTimeoutMs;
+
+    public PatientDashboardService(PatientRepository patientRepository,
+                                   PatientService patientService) {
+        this.patientRepository = patientRepository;
+        this.patientService = patientService;
+    }
+
+    /**
+     * @param patientId id from an already validated patient token
+     */
+    public Map<String, Object> getDashboard(Long patientId, String token) {
+        CompletableFuture<PatientResponse> patient = call(() ->
+                patientRepository.findById(patientId).map(PatientResponse::from).orElse(null));
+        CompletableFuture<List<AppointmentDTO>> appointments = call(() -> patientService.getPatientAppointment(patientId, token));
+
+        Map<String, Object> sections = new LinkedHashMap<>();
+        Map<String, String> errors = new LinkedHashMap<>();
+        collect("patient", patient, sections, errors);
+        collect("appointments", appointments, sections, errors);
+
+        Map<String, Object> response = new LinkedHashMap<>(sections);
+        response.put("partial", !errors.isEmpty());
+        if (!errors.isEmpty()) {
+            response.put("errors", errors);
+        }
+        return response;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // ------------------- HELPERS -------------------
+
+    private <T> CompletableFuture<T> call(Supplier<T> supplier) {
+        // Keep read-your-writes for the caller's session on the worker threads
+        return CompletableFuture.supplyAsync(QueryBudgetContext.propagate(ReplicaRoutingContext.propagate(supplier)), executor)
+                .orTimeout(callTimeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    private static void collect(String section, CompletableFuture<?> future,
+                                Map<String, Object> sections, Map<String, String> errors) {
+        try {
+            sections.put(section, future.join());
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof TimeoutException) {
+                errors.put(section, "timeout");
+            } else {
+                log.warn("Dashboard section '{}' failed", section, cause);
+                errors.put(section, "unavailable");
+            }
+            sections.put(section, null);
+        }
+    }
+}
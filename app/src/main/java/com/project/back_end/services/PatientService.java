@@ -1,15 +1,21 @@
 package com.project.back_end.services;
 
+import com.project.back_end.config.ReplicaRoutingContext;
 import com.project.back_end.DTO.Login;
 import com.project.back_end.models.Appointment;
 import com.project.back_end.models.Patient;
 import com.project.back_end.repo.AppointmentRepository;
 import com.project.back_end.repo.PatientRepository;
 import com.project.back_end.DTO.AppointmentDTO;
+import com.project.back_end.DTO.PatientResponse;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -22,13 +28,25 @@ public class PatientService {
     private final PatientRepository patientRepository;
     private final AppointmentRepository appointmentRepository;
     private final TokenService tokenService;
+    private final AppointmentArchiveService appointmentArchiveService;
+    private final AppointmentShardRouter appointmentShardRouter;
+    private final AppointmentProjectionService appointmentProjectionService;
+    private final ShardReplicationService shardReplicationService;
 
     public PatientService(PatientRepository patientRepository,
                           AppointmentRepository appointmentRepository,
-                          TokenService tokenService) {
+                          TokenService tokenService,
+                          AppointmentArchiveService appointmentArchiveService,
+                          AppointmentShardRouter appointmentShardRouter,
+                          AppointmentProjectionService appointmentProjectionService,
+                          ShardReplicationService shardReplicationService) {
         this.patientRepository = patientRepository;
         this.appointmentRepository = appointmentRepository;
         this.tokenService = tokenService;
+        this.appointmentArchiveService = appointmentArchiveService;
+        this.appointmentShardRouter = appointmentShardRouter;
+        this.appointmentProjectionService = appointmentProjectionService;
+        this.shardReplicationService = shardReplicationService;
     }
 
     /**
@@ -37,7 +55,7 @@ public class PatientService {
      */
     public int createPatient(Patient patient) {
         try {
-            patientRepository.save(patient);
+            shardReplicationService.replicatePatient(patientRepository.save(patient));
             return 1;
         } catch (Exception e) {
             e.printStackTrace();
@@ -82,7 +100,7 @@ public class PatientService {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
         }
 
-        response.put("patient", optionalPatient.get());
+        response.put("patient", PatientResponse.from(optionalPatient.get()));
         return ResponseEntity.ok(response);
     }
 
@@ -91,15 +109,50 @@ public class PatientService {
      * Get all appointments for a patient
      */
     public List<AppointmentDTO> getPatientAppointment(Long patientId, String token) {
+        return getPatientAppointment(patientId, token, null);
+    }
+
+    /**
+     * Get appointments for a patient starting at {@code from} (null = full history).
+     * The archive table is only queried when the range reaches back past the hot horizon.
+     * With several appointment shards every shard is queried in parallel and the results merged.
+     */
+    public List<AppointmentDTO> getPatientAppointment(Long patientId, String token, LocalDate from) {
         Long tokenPatientId = tokenService.extractPatientId(token);
         if (!tokenPatientId.equals(patientId)) {
             throw new RuntimeException("Unauthorized access");
         }
 
-        List<Appointment> appointments = appointmentRepository.findByPatientId(patientId);
-        return appointments.stream()
-                .map(AppointmentDTO::new)
-                .collect(Collectors.toList());
+        LocalDateTime since = from != null ? from.atStartOfDay() : null;
+        List<AppointmentDTO> history = new ArrayList<>(appointmentShardRouter.scatter(() -> {
+            List<Appointment> appointments = since != null
+                    ? appointmentRepository.findByPatient_IdAndAppointmentTimeGreaterThanEqual(patientId, since)
+                    : appointmentRepository.findByPatientId(patientId);
+
+            List<AppointmentDTO> shardHistory = new ArrayList<>();
+            if (appointmentArchiveService.reachesArchive(since)) {
+                shardHistory.addAll(appointmentArchiveService.getArchivedHistory(patientId, since));
+            }
+            appointments.stream()
+                    .map(AppointmentDTO::new)
+                    .forEach(shardHistory::add);
+            return shardHistory;
+        }, AppointmentDTO::doctorId));
+        return mergeByTime(history);
+    }
+
+    /**
+     * Same history as above narrowed to a {@code fields=} selection: only the
+     * selected columns are read and only the selected properties returned.
+     */
+    public List<Map<String, Object>> getPatientAppointment(Long patientId, String token, LocalDate from,
+                                                           AppointmentFieldSet fields) {
+        Long tokenPatientId = tokenService.extractPatientId(token);
+        if (!tokenPatientId.equals(patientId)) {
+            throw new RuntimeException("Unauthorized access");
+        }
+        LocalDateTime since = from != null ? from.atStartOfDay() : null;
+        return appointmentProjectionService.getPatientHistory(patientId, since, fields);
     }
 
     /**
@@ -111,18 +164,26 @@ public class PatientService {
             throw new RuntimeException("Unauthorized access");
         }
 
-        List<Appointment> appointments;
+        int status;
         if ("past".equalsIgnoreCase(condition)) {
-            appointments = appointmentRepository.findByPatient_IdAndStatusOrderByAppointmentTimeAsc(patientId, 1);
+            status = 1;
         } else if ("future".equalsIgnoreCase(condition)) {
-            appointments = appointmentRepository.findByPatient_IdAndStatusOrderByAppointmentTimeAsc(patientId, 0);
+            status = 0;
         } else {
             throw new RuntimeException("Invalid condition: " + condition);
         }
 
-        return appointments.stream()
-                .map(AppointmentDTO::new)
-                .collect(Collectors.toList());
+        return mergeByTime(appointmentShardRouter.scatter(() -> {
+            List<AppointmentDTO> shardAppointments = new ArrayList<>();
+            // Completed appointments past the horizon live in the archive
+            if (status == 1) {
+                shardAppointments.addAll(appointmentArchiveService.getArchivedPast(patientId, null));
+            }
+            appointmentRepository.findByPatient_IdAndStatusOrderByAppointmentTimeAsc(patientId, status).stream()
+                    .map(AppointmentDTO::new)
+                    .forEach(shardAppointments::add);
+            return shardAppointments;
+        }, AppointmentDTO::doctorId));
     }
 
     /**
@@ -134,18 +195,26 @@ public class PatientService {
             throw new RuntimeException("Unauthorized access");
         }
 
-        List<Appointment> appointments;
+        int status;
         if ("past".equalsIgnoreCase(condition)) {
-            appointments = appointmentRepository.filterByDoctorNameAndPatientIdAndStatus(doctorName, patientId, 1);
+            status = 1;
         } else if ("future".equalsIgnoreCase(condition)) {
-            appointments = appointmentRepository.filterByDoctorNameAndPatientIdAndStatus(doctorName, patientId, 0);
+            status = 0;
         } else {
             throw new RuntimeException("Invalid condition: " + condition);
         }
 
-        return appointments.stream()
-                .map(AppointmentDTO::new)
-                .collect(Collectors.toList());
+        return mergeByTime(appointmentShardRouter.scatter(() -> {
+            List<AppointmentDTO> shardAppointments = new ArrayList<>();
+            // Completed appointments past the horizon live in the archive
+            if (status == 1) {
+                shardAppointments.addAll(appointmentArchiveService.getArchivedPast(patientId, doctorName));
+            }
+            appointmentRepository.filterByDoctorNameAndPatientIdAndStatus(doctorName, patientId, status).stream()
+                    .map(AppointmentDTO::new)
+                    .forEach(shardAppointments::add);
+            return shardAppointments;
+        }, AppointmentDTO::doctorId));
     }
 
     /**
@@ -154,7 +223,8 @@ public class PatientService {
     public ResponseEntity<Map<String, String>> validatePatientLogin(Login login) {
         Map<String, String> response = new HashMap<>();
         try {
-            Optional<Patient> patientOpt = patientRepository.findByEmail(login.getEmail());
+            // On the primary, so a login right after signup finds the new account
+            Optional<Patient> patientOpt = ReplicaRoutingContext.onPrimary(() -> patientRepository.findByEmail(login.getEmail()));
             if (patientOpt.isPresent()) {
                 Patient patient = patientOpt.get();
                 if (patient.getPassword().equals(login.getPassword())) {
@@ -177,11 +247,17 @@ public class PatientService {
     }
 
 
+    // Archive and hot rows (and shards) are concatenated; order the result by time
+    private List<AppointmentDTO> mergeByTime(List<AppointmentDTO> appointments) {
+        appointments.sort(Comparator.comparing(AppointmentDTO::appointmentTime));
+        return appointments;
+    }
+
     public List<AppointmentDTO> filterByDoctor(String doctorName, Long patientId, String token) {
         // You can reuse existing filtering logic
         List<AppointmentDTO> allAppointments = getPatientAppointment(patientId, token);
         return allAppointments.stream()
-                .filter(appt -> appt.getDoctorName().toLowerCase().contains(doctorName.toLowerCase()))
+                .filter(appt -> appt.doctorName().toLowerCase().contains(doctorName.toLowerCase()))
                 .collect(Collectors.toList());
     }
 
@@ -0,0 +1,50 @@
+package com.project.back_end.services;
+
+import com.project.back_end.repo.PrescriptionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Removes Mongo prescriptions whose appointments were deleted from MySQL.
+ * Runs off the request thread and deletes in $in batches, so a large cleanup
+ * never becomes one huge remove.
+ */
+@Service
+public class PrescriptionCleanupService {
+
+    private static final Logger log = LoggerFactory.getLogger(PrescriptionCleanupService.class);
+
+    private final PrescriptionRepository prescriptionRepository;
+    private final PrescriptionService prescriptionService;
+
+    @Value("${prescription.cleanup.batch-size:500}")
+    private int batchSize;
+
+    public PrescriptionCleanupService(PrescriptionRepository prescriptionRepository,
+                                      PrescriptionService prescriptionService) {
+        this.prescriptionRepository = prescriptionRepository;
+        this.prescriptionService = prescriptionService;
+    }
+
+    @Async
+    public void deleteForAppointments(List<Long> appointmentIds) {
+        if (appointmentIds == null || appointmentIds.isEmpty()) {
+            return;
+        }
+        for (int from = 0; from < appointmentIds.size(); from += batchSize) {
+            List<Long> batch = appointmentIds.subList(from, Math.min(from + batchSize, appointmentIds.size()));
+            try {
+                prescriptionRepository.deleteByAppointmentIdIn(batch);
+                prescriptionService.evict(batch);
+            } catch (Exception e) {
+                // Orphans are harmless to reads; log and keep going with the next batch
+                log.warn("Failed to delete prescriptions for {} appointments", batch.size(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.project.back_end.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.back_end.config.ReplicaRoutingContext;
+import com.project.back_end.config.ShardContext;
+import com.project.back_end.models.Prescription;
+import com.project.back_end.models.PrescriptionOutbox;
+import com.project.back_end.repo.AppointmentRepository;
+import com.project.back_end.repo.PrescriptionOutboxRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Transactional outbox for the MySQL + Mongo prescription write.
+ * {@link #enqueue} flags the appointment and stores the prescription in
+ * prescription_outbox in one local transaction; {@link #dispatch} drains the
+ * outbox to Mongo in batches, retrying failures with capped exponential backoff.
+ *
+ * Each instance claims its batch first (locked with SKIP LOCKED, then leased by
+ * pushing nextAttemptAt out), so instances never send the same entries. An
+ * entry whose instance dies mid-send is picked up again when the lease ends;
+ * the Mongo write is an upsert on appointmentId, so that redelivery is harmless.
+ *
+ * An entry that fails on its own (an unreadable payload, or a Mongo write error
+ * for that document {@code max-attempts} times) is parked as dead and logged
+ * instead of being retried forever. A batch that fails as a whole (Mongo
+ * unreachable) only backs off, however long the outage.
+ */
+@Service
+public class PrescriptionOutboxService {
+
+    private static final Logger log = LoggerFactory.getLogger(PrescriptionOutboxService.class);
+
+    private static final long MAX_BACKOFF_SECONDS = 300;
+
+    private final AppointmentRepository appointmentRepository;
+    private final PrescriptionOutboxRepository prescriptionOutboxRepository;
+    private final PrescriptionService prescriptionService;
+    private final ObjectMapper objectMapper;
+    private final AppointmentShardRouter appointmentShardRouter;
+    private final AuditService auditService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${prescription.outbox.batch-size:100}")
+    private int batchSize;
+
+    // Longer than a batch takes to reach Mongo, including its timeouts
+    @Value("${prescription.outbox.lease-seconds:60}")
+    private long leaseSeconds;
+
+    @Value("${prescription.outbox.max-attempts:10}")
+    private int maxAttempts;
+
+    public PrescriptionOutboxService(AppointmentRepository appointmentRepository,
+                                     PrescriptionOutboxRepository prescriptionOutboxRepository,
+                                     PrescriptionService prescriptionService,
+                                     ObjectMapper objectMapper,
+                                     AppointmentShardRouter appointmentShardRouter,
+                                     AuditService auditService,
+                                     TransactionTemplate transactionTemplate) {
+        this.appointmentRepository = appointmentRepository;
+        this.prescriptionOutboxRepository = prescriptionOutboxRepository;
+        this.prescriptionService = prescriptionService;
+        this.objectMapper = objectMapper;
+        this.appointmentShardRouter = appointmentShardRouter;
+        this.auditService = auditService;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * Queue a prescription for the doctor's appointment.
+     * @return 1 if queued, 0 if the appointment is not found for this doctor, -1 if it already has a prescription
+     */
+    @Transactional
+    public int enqueue(Prescription prescription, Long doctorId) {
+        Long appointmentId = prescription.getAppointmentId();
+        if (appointmentId == null || doctorId == null) {
+            return 0;
+        }
+        // The outbox row goes to the appointment's shard, so the claim and the row still commit together
+        appointmentShardRouter.bindForWrite(doctorId);
+        if (appointmentRepository.claimPrescription(appointmentId, doctorId) == 0) {
+            return appointmentRepository.existsByIdAndDoctor_Id(appointmentId, doctorId) ? -1 : 0;
+        }
+
+        // Issue time is the request time, not the (later) delivery to Mongo
+        if (prescription.getIssuedAt() == null) {
+            prescription.setIssuedAt(LocalDateTime.now());
+        }
+        prescription.setDoctorId(doctorId);
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(prescription);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Prescription could not be serialized", e);
+        }
+        prescriptionOutboxRepository.save(new PrescriptionOutbox(appointmentId, payload, LocalDateTime.now()));
+        auditService.record(AuditService.PRESCRIPTION_ISSUED, appointmentId, doctorId, null,
+                prescription.getMedication());
+        return 1;
+    }
+
+    // ------------------- DISPATCHER -------------------
+    @Scheduled(fixedDelayString = "${prescription.outbox.poll-interval-ms:500}")
+    public void dispatch() {
+        // Every shard keeps its own outbox next to its appointments
+        for (String shard : appointmentShardRouter.getShardNames()) {
+            try {
+                ShardContext.onShard(shard, () -> {
+                    dispatchBatch();
+                    return null;
+                });
+            } catch (Exception e) {
+                // One unreachable shard must not stop the others from draining
+                log.warn("Prescription outbox dispatch on {} failed", shard, e);
+            }
+        }
+    }
+
+    private void dispatchBatch() {
+        List<PrescriptionOutbox> batch = claim();
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        List<PrescriptionOutbox> entries = new ArrayList<>();
+        List<Prescription> prescriptions = new ArrayList<>();
+        for (PrescriptionOutbox entry : batch) {
+            try {
+                prescriptions.add(objectMapper.readValue(entry.getPayload(), Prescription.class));
+                entries.add(entry);
+            } catch (JsonProcessingException e) {
+                // Retrying cannot make the payload readable
+                markDead(entry, e);
+            }
+        }
+
+        Set<Integer> failed;
+        try {
+            failed = prescriptionService.savePrescriptions(prescriptions);
+        } catch (Exception e) {
+            // Mongo unreachable: the whole batch goes back with backoff
+            log.warn("Prescription outbox dispatch of {} entries failed", entries.size(), e);
+            entries.forEach(entry -> retryLater(entry, e));
+            return;
+        }
+
+        List<Long> delivered = new ArrayList<>();
+        for (int i = 0; i < entries.size(); i++) {
+            if (failed.contains(i)) {
+                markFailed(entries.get(i));
+            } else {
+                delivered.add(entries.get(i).getId());
+            }
+        }
+        if (!delivered.isEmpty()) {
+            prescriptionOutboxRepository.deleteByIdIn(delivered);
+        }
+    }
+
+    // Locks and leases the next batch in one short transaction
+    private List<PrescriptionOutbox> claim() {
+        // On the primary: a replica could hand back entries that were already delivered
+        List<PrescriptionOutbox> batch = ReplicaRoutingContext.onPrimary(() -> transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<PrescriptionOutbox> locked = prescriptionOutboxRepository.lockDispatchable(now, PageRequest.of(0, batchSize));
+            if (!locked.isEmpty()) {
+                prescriptionOutboxRepository.lease(locked.stream().map(PrescriptionOutbox::getId).toList(),
+                        now.plusSeconds(leaseSeconds));
+            }
+            return locked;
+        }));
+        return batch != null ? batch : List.of();
+    }
+
+    // A write error for this entry alone; parked once it has failed max-attempts times
+    private void markFailed(PrescriptionOutbox entry) {
+        if (entry.getAttempts() + 1 >= maxAttempts) {
+            markDead(entry, null);
+        } else {
+            retryLater(entry, null);
+        }
+    }
+
+    private void retryLater(PrescriptionOutbox entry, Exception cause) {
+        long backoffSeconds = Math.min(MAX_BACKOFF_SECONDS, 1L << Math.min(entry.getAttempts(), 16));
+        prescriptionOutboxRepository.markFailed(entry.getId(), LocalDateTime.now().plusSeconds(backoffSeconds),
+                errorOf(cause));
+    }
+
+    private void markDead(PrescriptionOutbox entry, Exception cause) {
+        log.error("Prescription outbox entry {} for appointment {} parked as dead after {} attempts: {}",
+                entry.getId(), entry.getAppointmentId(), entry.getAttempts() + 1, errorOf(cause));
+        prescriptionOutboxRepository.markDead(entry.getId(), errorOf(cause));
+    }
+
+    private static String errorOf(Exception cause) {
+        String error = cause != null ? String.valueOf(cause.getMessage()) : "Mongo write error";
+        return error.length() > 500 ? error.substring(0, 500) : error;
+    }
+}
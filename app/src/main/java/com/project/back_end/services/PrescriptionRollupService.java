@@ -0,0 +1,275 @@
+package com.project.back_end.services;
+
+import com.project.back_end.models.Prescription;
+import com.project.back_end.models.PrescriptionRollup;
+import com.project.back_end.repo.PrescriptionRollupRepository;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Maintains per-doctor monthly prescribing rollups. Inserts are applied
+ * incrementally with $inc, once per appointment; {@link #rebuild()} recomputes
+ * everything from the prescriptions collection one month at a time, so each
+ * aggregation stays bounded. Admin dashboards read only the rollups.
+ *
+ * A rebuild never overwrites increments made while it runs: each rollup is
+ * merged with the live document (the appointments the aggregation did not see
+ * but that still exist are kept) and replaced only if no increment landed since
+ * it was read, otherwise the merge is redone.
+ */
+@Service
+public class PrescriptionRollupService {
+
+    private static final Logger log = LoggerFactory.getLogger(PrescriptionRollupService.class);
+
+    // Merge retries per rollup when increments keep landing between read and replace
+    private static final int MAX_MERGE_ATTEMPTS = 5;
+
+    private final MongoTemplate mongoTemplate;
+    private final PrescriptionRollupRepository prescriptionRollupRepository;
+    private final AtomicBoolean rebuilding = new AtomicBoolean(false);
+
+    public PrescriptionRollupService(MongoTemplate mongoTemplate,
+                                     PrescriptionRollupRepository prescriptionRollupRepository) {
+        this.mongoTemplate = mongoTemplate;
+        this.prescriptionRollupRepository = prescriptionRollupRepository;
+    }
+
+    // ------------------- INCREMENTAL -------------------
+    // Called with the prescriptions that were actually inserted; rollups are derived data, so failures only log
+    public void recordInserted(Collection<Prescription> prescriptions) {
+        // Ordered: each rollup is created (if missing) before its conditional increment runs
+        BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.ORDERED, PrescriptionRollup.class);
+        LocalDateTime now = LocalDateTime.now();
+        int pending = 0;
+        for (Prescription prescription : prescriptions) {
+            if (prescription.getDoctorId() == null || prescription.getIssuedAt() == null
+                    || prescription.getAppointmentId() == null) {
+                continue;
+            }
+            String month = YearMonth.from(prescription.getIssuedAt()).toString();
+            String id = rollupId(prescription.getDoctorId(), month);
+            String medication = medicationKey(prescription.getMedication());
+            String appointment = "appointments." + prescription.getAppointmentId();
+            ops.upsert(Query.query(Criteria.where("id").is(id)), new Update()
+                    .setOnInsert("doctorId", prescription.getDoctorId())
+                    .setOnInsert("month", month));
+            // No-op if this appointment is already counted, e.g. by a rebuild that ran first
+            ops.updateOne(Query.query(Criteria.where("id").is(id).and(appointment).exists(false)), new Update()
+                    .set(appointment, medication)
+                    .inc("total", 1)
+                    .inc("medications." + medication, 1)
+                    .inc("version", 1)
+                    .set("updatedAt", now));
+            pending++;
+        }
+        if (pending == 0) {
+            return;
+        }
+        try {
+            ops.execute();
+        } catch (Exception e) {
+            log.warn("Could not update prescription rollups for {} prescriptions; rebuild to repair", pending, e);
+        }
+    }
+
+    public void deleteForDoctor(Long doctorId) {
+        prescriptionRollupRepository.deleteByDoctorId(doctorId);
+    }
+
+    // ------------------- REBUILD -------------------
+    public boolean isRebuilding() {
+        return rebuilding.get();
+    }
+
+    /**
+     * Recompute all rollups from prescriptions, one month per aggregation.
+     * A call while another rebuild is running returns immediately.
+     */
+    @Async
+    public void rebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            Query oldestQuery = new Query(Criteria.where("issuedAt").ne(null))
+                    .with(Sort.by(Sort.Direction.ASC, "issuedAt"))
+                    .limit(1);
+            Prescription oldest = mongoTemplate.findOne(oldestQuery, Prescription.class);
+            if (oldest == null) {
+                return;
+            }
+            YearMonth first = YearMonth.from(oldest.getIssuedAt());
+            YearMonth last = YearMonth.now();
+            for (YearMonth month = first; !month.isAfter(last); month = month.plusMonths(1)) {
+                try {
+                    rebuildMonth(month);
+                } catch (Exception e) {
+                    log.error("Rollup rebuild failed for {}", month, e);
+                }
+            }
+            log.info("Prescription rollups rebuilt from {} to {}", first, last);
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+
+    private void rebuildMonth(YearMonth month) {
+        String monthKey = month.toString();
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("issuedAt")
+                        .gte(month.atDay(1).atStartOfDay())
+                        .lt(month.plusMonths(1).atDay(1).atStartOfDay())
+                        .and("doctorId").ne(null)
+                        .and("appointmentId").ne(null)),
+                Aggregation.project("doctorId", "appointmentId", "medication")
+        ).withOptions(AggregationOptions.builder().allowDiskUse(true).build());
+
+        // Rollup id -> (appointmentId -> medication) as the prescriptions stand now
+        Map<String, Map<String, String>> counted = new HashMap<>();
+        Map<String, Long> doctors = new HashMap<>();
+        for (Document row : mongoTemplate.aggregate(aggregation, Prescription.class, Document.class)) {
+            Long doctorId = ((Number) row.get("doctorId")).longValue();
+            String id = rollupId(doctorId, monthKey);
+            doctors.put(id, doctorId);
+            counted.computeIfAbsent(id, key -> new HashMap<>())
+                    .put(String.valueOf(row.get("appointmentId")), medicationKey(row.getString("medication")));
+        }
+
+        // Doctors with a rollup but no prescriptions found this month are merged too (and removed if empty)
+        Query existing = Query.query(Criteria.where("month").is(monthKey));
+        existing.fields().include("doctorId");
+        for (PrescriptionRollup rollup : mongoTemplate.find(existing, PrescriptionRollup.class)) {
+            doctors.putIfAbsent(rollup.getId(), rollup.getDoctorId());
+        }
+
+        doctors.forEach((id, doctorId) ->
+                merge(id, doctorId, monthKey, counted.getOrDefault(id, Map.of())));
+    }
+
+    // Replaces one rollup with the prescriptions found plus what was counted since, if nothing changed meanwhile
+    private void merge(String id, Long doctorId, String month, Map<String, String> fromPrescriptions) {
+        for (int attempt = 0; attempt < MAX_MERGE_ATTEMPTS; attempt++) {
+            PrescriptionRollup live = mongoTemplate.findById(id, PrescriptionRollup.class);
+            Map<String, String> merged = new HashMap<>(fromPrescriptions);
+            if (live != null) {
+                merged.putAll(countedSince(live, fromPrescriptions));
+            }
+
+            if (live == null) {
+                if (merged.isEmpty() || insert(rollupOf(id, doctorId, month, merged, 1))) {
+                    return;
+                }
+                continue;
+            }
+            Query unchanged = Query.query(Criteria.where("id").is(id).and("version")
+                    .in(live.getVersion() == 0 ? Arrays.asList(0L, null) : List.of(live.getVersion())));
+            if (merged.isEmpty()) {
+                if (mongoTemplate.remove(unchanged, PrescriptionRollup.class).getDeletedCount() > 0) {
+                    return;
+                }
+            } else if (mongoTemplate.findAndReplace(unchanged,
+                    rollupOf(id, doctorId, month, merged, live.getVersion() + 1)) != null) {
+                return;
+            }
+        }
+        log.warn("Rollup {} kept changing during the rebuild; left as is, rebuild again to repair", id);
+    }
+
+    // Appointments counted live but missed by the aggregation: kept if the prescription exists (it was
+    // inserted after the aggregation read), dropped if it has been deleted since it was counted
+    private Map<String, String> countedSince(PrescriptionRollup live, Map<String, String> fromPrescriptions) {
+        List<Long> unseen = live.getAppointments().keySet().stream()
+                .filter(appointmentId -> !fromPrescriptions.containsKey(appointmentId))
+                .map(Long::valueOf)
+                .toList();
+        if (unseen.isEmpty()) {
+            return Map.of();
+        }
+        Set<Long> present = new HashSet<>(mongoTemplate.findDistinct(
+                Query.query(Criteria.where("appointmentId").in(unseen)), "appointmentId", Prescription.class, Long.class));
+        Map<String, String> kept = new HashMap<>();
+        unseen.stream().filter(present::contains).forEach(appointmentId ->
+                kept.put(appointmentId.toString(), live.getAppointments().get(appointmentId.toString())));
+        return kept;
+    }
+
+    private boolean insert(PrescriptionRollup rollup) {
+        try {
+            mongoTemplate.insert(rollup);
+            return true;
+        } catch (DuplicateKeyException e) {
+            // Created by an increment meanwhile; merge with it
+            return false;
+        }
+    }
+
+    private static PrescriptionRollup rollupOf(String id, Long doctorId, String month,
+                                               Map<String, String> appointments, long version) {
+        PrescriptionRollup rollup = new PrescriptionRollup(id, doctorId, month);
+        rollup.setAppointments(new HashMap<>(appointments));
+        appointments.values().forEach(medication -> rollup.getMedications().merge(medication, 1L, Long::sum));
+        rollup.setTotal(appointments.size());
+        rollup.setVersion(version);
+        rollup.setUpdatedAt(LocalDateTime.now());
+        return rollup;
+    }
+
+    // ------------------- READ SIDE -------------------
+    public List<Map<String, Object>> getTopMedications(Long doctorId, YearMonth month, int limit) {
+        return prescriptionRollupRepository.findById(rollupId(doctorId, month.toString()))
+                .map(rollup -> rollup.getMedications().entrySet().stream()
+                        .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                        .limit(limit)
+                        .map(entry -> Map.<String, Object>of("medication", entry.getKey(), "count", entry.getValue()))
+                        .toList())
+                .orElse(List.of());
+    }
+
+    // Monthly totals, for one doctor or (doctorId == null) the whole clinic
+    public List<Map<String, Object>> getVolumeTrend(Long doctorId, YearMonth from, YearMonth to) {
+        List<PrescriptionRollup> rollups = doctorId != null
+                ? prescriptionRollupRepository.findByDoctorIdAndMonthRange(doctorId, from.toString(), to.toString())
+                : prescriptionRollupRepository.findByMonthRange(from.toString(), to.toString());
+
+        Map<String, Long> totals = new TreeMap<>();
+        for (YearMonth month = from; !month.isAfter(to); month = month.plusMonths(1)) {
+            totals.put(month.toString(), 0L);
+        }
+        rollups.forEach(rollup -> totals.merge(rollup.getMonth(), rollup.getTotal(), Long::sum));
+
+        List<Map<String, Object>> trend = new ArrayList<>();
+        totals.forEach((month, total) -> trend.add(Map.of("month", month, "total", total)));
+        return trend;
+    }
+
+    // ------------------- HELPERS -------------------
+    private static String rollupId(Long doctorId, String month) {
+        return doctorId + ":" + month;
+    }
+
+    // Map keys cannot contain '.' or start with '$'
+    private static String medicationKey(String medication) {
+        if (medication == null || medication.isBlank()) {
+            return "unknown";
+        }
+        return medication.trim().toLowerCase(Locale.ROOT).replace('.', '_').replace('$', '_');
+    }
+}
@@ -0,0 +1,124 @@
+package com.project.back_end.services;
+
+import com.project.back_end.models.Prescription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Medication search over prescriptions. Each document carries its own postings
+ * in {@code searchTokens} (lower-cased words of medication and doctorNotes),
+ * kept up to date on save and covered by a multikey index together with
+ * {@code issuedAt}. Anchored regexes on that array are index range scans, which
+ * gives prefix matching without a collection scan.
+ */
+@Service
+public class PrescriptionSearchService {
+
+    private static final Logger log = LoggerFactory.getLogger(PrescriptionSearchService.class);
+
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final int MIN_TOKEN_LENGTH = 2;
+    private static final int BACKFILL_BATCH_SIZE = 500;
+
+    private final MongoTemplate mongoTemplate;
+
+    public PrescriptionSearchService(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    /**
+     * Prescriptions whose medication or notes contain a word starting with every term of {@code q},
+     * newest first. {@code from}/{@code to} are inclusive dates and may be null.
+     */
+    public List<Prescription> search(String q, LocalDate from, LocalDate to, int limit) {
+        List<String> terms = tokenize(q);
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+
+        List<Criteria> criteria = new ArrayList<>();
+        for (String term : terms) {
+            // Tokens are [\p{L}\p{N}] only, so the term needs no escaping
+            criteria.add(Criteria.where("searchTokens").regex("^" + term));
+        }
+        if (from != null || to != null) {
+            Criteria issued = Criteria.where("issuedAt");
+            if (from != null) {
+                issued = issued.gte(from.atStartOfDay());
+            }
+            if (to != null) {
+                issued = issued.lt(to.plusDays(1).atStartOfDay());
+            }
+            criteria.add(issued);
+        }
+
+        Query query = new Query(new Criteria().andOperator(criteria))
+                .with(Sort.by(Sort.Direction.DESC, "issuedAt"))
+                .limit(limit);
+        return mongoTemplate.find(query, Prescription.class);
+    }
+
+    // Postings for one prescription; called before every insert
+    public static List<String> searchTokensFor(Prescription prescription) {
+        Set<String> tokens = new LinkedHashSet<>(tokenize(prescription.getMedication()));
+        tokens.addAll(tokenize(prescription.getDoctorNotes()));
+        return new ArrayList<>(tokens);
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        return Arrays.stream(NON_WORD.split(text.toLowerCase(Locale.ROOT)))
+                .filter(token -> token.length() >= MIN_TOKEN_LENGTH)
+                .distinct()
+                .toList();
+    }
+
+    // Documents written before search existed have no postings yet
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillSearchTokens() {
+        Query missing = new Query(Criteria.where("searchTokens").exists(false)).limit(BACKFILL_BATCH_SIZE);
+        try {
+            int total = 0;
+            while (true) {
+                List<Prescription> batch = mongoTemplate.find(missing, Prescription.class);
+                if (batch.isEmpty()) {
+                    break;
+                }
+                BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Prescription.class);
+                for (Prescription prescription : batch) {
+                    ops.updateOne(Query.query(Criteria.where("id").is(prescription.getId())),
+                            Update.update("searchTokens", searchTokensFor(prescription)));
+                }
+                ops.execute();
+                total += batch.size();
+            }
+            if (total > 0) {
+                log.info("Backfilled search tokens for {} prescriptions", total);
+            }
+        } catch (Exception e) {
+            log.error("Search token backfill stopped", e);
+        }
+    }
+}
@@ -1,26 +1,242 @@
 package com.project.back_end.services;
 
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.mongodb.bulk.BulkWriteError;
 import com.project.back_end.models.Prescription;
 import com.project.back_end.repo.PrescriptionRepository;
+import com.project.back_end.repo.ReactivePrescriptionRepository;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 
 @Service
 public class PrescriptionService {
 
+    private static final int DUPLICATE_KEY = 11000;
+
     private final PrescriptionRepository prescriptionRepository;
+    private final ReactivePrescriptionRepository reactivePrescriptionRepository;
+    private final MongoTemplate mongoTemplate;
+    private final PrescriptionRollupService prescriptionRollupService;
+
+    // Read-through cache keyed by appointment id; an empty list is the negative entry.
+    // Async, so the reactive read can cache a pending load: invalidating a key while its
+    // load is in flight drops the load's result instead of letting it overwrite the invalidation
+    private final AsyncCache<Long, List<Prescription>> asyncCache;
+    // Blocking view of the same entries
+    private final Cache<Long, List<Prescription>> cache;
 
-    public PrescriptionService(PrescriptionRepository prescriptionRepository) {
+    public PrescriptionService(PrescriptionRepository prescriptionRepository,
+                               ReactivePrescriptionRepository reactivePrescriptionRepository,
+                               MongoTemplate mongoTemplate,
+                               PrescriptionRollupService prescriptionRollupService,
+                               @Value("${prescription.cache.max-weight-bytes:16777216}") long maxWeightBytes,
+                               @Value("${prescription.cache.ttl-minutes:60}") long ttlMinutes,
+                               @Value("${prescription.cache.negative-ttl-seconds:30}") long negativeTtlSeconds) {
         this.prescriptionRepository = prescriptionRepository;
+        this.reactivePrescriptionRepository = reactivePrescriptionRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.prescriptionRollupService = prescriptionRollupService;
+        this.asyncCache = Caffeine.newBuilder()
+                .maximumWeight(maxWeightBytes)
+                .weigher((Long appointmentId, List<Prescription> prescriptions) -> weigh(prescriptions))
+                .expireAfter(new PrescriptionExpiry(Duration.ofMinutes(ttlMinutes), Duration.ofSeconds(negativeTtlSeconds)))
+                .recordStats()
+                .buildAsync();
+        this.cache = asyncCache.synchronous();
     }
 
     public void savePrescription(Prescription prescription) {
+        boolean inserted = prescription.getId() == null;
+        prepareForInsert(prescription);
         prescriptionRepository.save(prescription);
+        cache.invalidate(prescription.getAppointmentId());
+        if (inserted) {
+            prescriptionRollupService.recordInserted(List.of(prescription));
+        }
+    }
+
+    /**
+     * Unordered bulk upsert keyed on appointmentId: a redelivered prescription
+     * matches the stored one and is left as it is, with or without the unique
+     * appointmentId index. Duplicate-key errors (two upserts racing on the
+     * index) also count as saved.
+     * @return positions in {@code prescriptions} that failed for any other reason
+     */
+    public Set<Integer> savePrescriptions(List<Prescription> prescriptions) {
+        if (prescriptions.isEmpty()) {
+            return Set.of();
+        }
+        prescriptions.forEach(this::prepareForInsert);
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Prescription.class);
+        for (Prescription prescription : prescriptions) {
+            bulk.upsert(Query.query(Criteria.where("appointmentId").is(prescription.getAppointmentId())),
+                    insertOnly(prescription));
+        }
+        Set<Integer> inserted = new HashSet<>();
+        List<BulkWriteError> errors = List.of();
+        try {
+            bulk.execute().getUpserts().forEach(upsert -> inserted.add(upsert.getIndex()));
+        } catch (BulkOperationException e) {
+            errors = e.getErrors();
+            e.getResult().getUpserts().forEach(upsert -> inserted.add(upsert.getIndex()));
+        } finally {
+            // Also after partial failures: some documents may have been written
+            cache.invalidateAll(prescriptions.stream().map(Prescription::getAppointmentId).toList());
+        }
+
+        // Redeliveries matched an existing document; only fresh inserts feed the rollups
+        List<Prescription> fresh = new ArrayList<>();
+        for (int i = 0; i < prescriptions.size(); i++) {
+            if (inserted.contains(i)) {
+                fresh.add(prescriptions.get(i));
+            }
+        }
+        prescriptionRollupService.recordInserted(fresh);
+
+        return errors.stream()
+                .filter(error -> error.getCode() != DUPLICATE_KEY)
+                .map(BulkWriteError::getIndex)
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * Prescriptions for many appointments in one query, grouped by appointment id.
+     * Cached appointments are served from memory; the rest are loaded with a single $in.
+     * Appointments without a prescription are absent from the map.
+     */
+    public Map<Long, List<Prescription>> getPrescriptionsByAppointmentIds(Collection<Long> appointmentIds) {
+        if (appointmentIds == null || appointmentIds.isEmpty()) {
+            return Map.of();
+        }
+        Map<Long, List<Prescription>> all = cache.getAll(appointmentIds, this::loadAll);
+        Map<Long, List<Prescription>> found = new LinkedHashMap<>();
+        all.forEach((appointmentId, prescriptions) -> {
+            if (!prescriptions.isEmpty()) {
+                found.put(appointmentId, prescriptions);
+            }
+        });
+        return found;
+    }
+
+    // ------------------- REACTIVE -------------------
+    // Same cache as the batch path; a miss goes to Mongo without holding a request thread.
+    // Concurrent misses for one appointment share a single load.
+    public Mono<List<Prescription>> getPrescriptionByAppointmentId(Long appointmentId) {
+        CompletableFuture<List<Prescription>> prescriptions = asyncCache.get(appointmentId,
+                (id, executor) -> reactivePrescriptionRepository.findByAppointmentId(id)
+                        .collectList()
+                        .<List<Prescription>>map(List::copyOf)
+                        .toFuture());
+        // A cancelled request must not cancel the load other requests are waiting on
+        return Mono.fromFuture(prescriptions, true);
+    }
+
+    // Drop entries whose documents were removed behind the cache's back (e.g. doctor deletion)
+    public void evict(Collection<Long> appointmentIds) {
+        cache.invalidateAll(appointmentIds);
+    }
+
+    public CacheStats getCacheStats() {
+        return cache.stats();
+    }
+
+    public long getCacheSize() {
+        return cache.estimatedSize();
     }
 
-    // Add this method so the controller call compiles
-    public List<Prescription> getPrescriptionByAppointmentId(Long appointmentId) {
-        return prescriptionRepository.findByAppointmentId(appointmentId);
+    // ------------------- HELPERS -------------------
+    private void prepareForInsert(Prescription prescription) {
+        if (prescription.getIssuedAt() == null) {
+            prescription.setIssuedAt(LocalDateTime.now());
+        }
+        prescription.setSearchTokens(PrescriptionSearchService.searchTokensFor(prescription));
+    }
+
+    // $setOnInsert of every mapped field, so an upsert that matches changes nothing
+    private Update insertOnly(Prescription prescription) {
+        Document document = new Document();
+        mongoTemplate.getConverter().write(prescription, document);
+        Update update = new Update();
+        document.forEach(update::setOnInsert);
+        return update;
+    }
+
+    private Map<Long, List<Prescription>> loadAll(Set<? extends Long> appointmentIds) {
+        Map<Long, List<Prescription>> grouped = prescriptionRepository.findByAppointmentIdIn(List.copyOf(appointmentIds))
+                .stream()
+                .collect(Collectors.groupingBy(Prescription::getAppointmentId));
+        Map<Long, List<Prescription>> loaded = new HashMap<>();
+        for (Long appointmentId : appointmentIds) {
+            loaded.put(appointmentId, List.copyOf(grouped.getOrDefault(appointmentId, List.of())));
+        }
+        return loaded;
+    }
+
+    // Rough heap footprint in bytes: object overhead plus UTF-16 string contents
+    private static int weigh(List<Prescription> prescriptions) {
+        int weight = 64;
+        for (Prescription p : prescriptions) {
+            weight += 96 + 2 * (length(p.getId()) + length(p.getPatientName()) + length(p.getMedication())
+                    + length(p.getDosage()) + length(p.getDoctorNotes()));
+        }
+        return weight;
+    }
+
+    private static int length(String value) {
+        return value != null ? value.length() : 0;
+    }
+
+    // Negative entries ("no prescription yet") expire sooner than real ones
+    private static final class PrescriptionExpiry implements Expiry<Long, List<Prescription>> {
+
+        private final long ttlNanos;
+        private final long negativeTtlNanos;
+
+        private PrescriptionExpiry(Duration ttl, Duration negativeTtl) {
+            this.ttlNanos = ttl.toNanos();
+            this.negativeTtlNanos = negativeTtl.toNanos();
+        }
+
+        @Override
+        public long expireAfterCreate(Long appointmentId, List<Prescription> prescriptions, long currentTime) {
+            return prescriptions.isEmpty() ? negativeTtlNanos : ttlNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(Long appointmentId, List<Prescription> prescriptions,
+                                      long currentTime, long currentDuration) {
+            return expireAfterCreate(appointmentId, prescriptions, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(Long appointmentId, List<Prescription> prescriptions,
+                                    long currentTime, long currentDuration) {
+            return currentDuration;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,205 @@
+package com.project.back_end.services;
+
+import com.project.back_end.config.AppointmentShards;
+import com.project.back_end.config.ShardContext;
+import com.project.back_end.models.Doctor;
+import com.project.back_end.models.Patient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Keeps doctor and patient rows on every appointment shard. Shard-0 is the
+ * source of truth; shard-1..n hold copies so appointments there can keep their
+ * foreign keys and their joins.
+ *
+ * Writes are copied once the shard-0 transaction commits (a rollback copies
+ * nothing), straight through the shard pools, so they never share the
+ * transaction's connection. A copy that fails is logged; {@link #replicateAll}
+ * brings every shard up to date again, and is also how a new shard is filled.
+ */
+@Service
+public class ShardReplicationService {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardReplicationService.class);
+
+    private static final List<String> DOCTOR_COLUMNS =
+            List.of("id", "name", "specialty", "email", "password", "phone");
+    private static final List<String> PATIENT_COLUMNS =
+            List.of("id", "name", "email", "password", "phone", "address");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final List<Target> targets = new ArrayList<>();
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private volatile Map<String, Object> lastRun = Map.of();
+
+    @Value("${appointment.shards.migration-batch-size:500}")
+    private int batchSize;
+
+    public ShardReplicationService(AppointmentShards appointmentShards, JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        appointmentShards.getShardDataSources().forEach((name, dataSource) -> targets.add(new Target(name,
+                new JdbcTemplate(dataSource), new TransactionTemplate(new DataSourceTransactionManager(dataSource)))));
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    public Map<String, Object> getLastRun() {
+        return lastRun;
+    }
+
+    // ------------------- SINGLE ROWS -------------------
+
+    public void replicateDoctor(Doctor doctor) {
+        if (targets.isEmpty()) {
+            return;
+        }
+        // Values are taken now; the entity may be changed or detached by the time the transaction commits
+        Object[] row = {doctor.getId(), doctor.getName(), doctor.getSpecialty(), doctor.getEmail(),
+                doctor.getPassword(), doctor.getPhone()};
+        List<String> times = doctor.getAvailableTimes() != null ? List.copyOf(doctor.getAvailableTimes()) : List.of();
+        afterCommit("doctor " + doctor.getId(), target -> {
+            target.jdbc.update(upsert("doctor", DOCTOR_COLUMNS), row);
+            target.jdbc.update("DELETE FROM doctor_available_times WHERE doctor_id = ?", row[0]);
+            target.jdbc.batchUpdate("INSERT INTO doctor_available_times (doctor_id, available_times) VALUES (?, ?)",
+                    times.stream().map(time -> new Object[]{row[0], time}).toList());
+        });
+    }
+
+    public void replicatePatient(Patient patient) {
+        if (targets.isEmpty()) {
+            return;
+        }
+        Object[] row = {patient.getId(), patient.getName(), patient.getEmail(), patient.getPassword(),
+                patient.getPhone(), patient.getAddress()};
+        afterCommit("patient " + patient.getId(), target -> target.jdbc.update(upsert("patient", PATIENT_COLUMNS), row));
+    }
+
+    // Once the doctor is gone from shard-0; their appointments must already be deleted from their shard
+    public void removeDoctor(Long doctorId) {
+        if (targets.isEmpty()) {
+            return;
+        }
+        afterCommit("doctor " + doctorId, target -> {
+            target.jdbc.update("DELETE FROM doctor_available_times WHERE doctor_id = ?", doctorId);
+            target.jdbc.update("DELETE FROM doctor WHERE id = ?", doctorId);
+        });
+    }
+
+    // ------------------- FULL COPY -------------------
+
+    // Copies every doctor and patient from shard-0 to the other shards, in id batches
+    @Async
+    public void replicateAll() {
+        if (targets.isEmpty() || !running.compareAndSet(false, true)) {
+            return;
+        }
+        Map<String, Object> run = new LinkedHashMap<>();
+        run.put("startedAt", LocalDateTime.now().toString());
+        run.put("state", "running");
+        lastRun = run;
+        try {
+            run.put("doctors", copyAll("doctor", DOCTOR_COLUMNS, true));
+            run.put("patients", copyAll("patient", PATIENT_COLUMNS, false));
+            run.put("state", "done");
+        } catch (Exception e) {
+            log.error("Copying doctors and patients to the appointment shards failed", e);
+            run.put("state", "failed");
+            run.put("error", String.valueOf(e.getMessage()));
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private long copyAll(String table, List<String> columns, boolean withTimes) {
+        String select = "SELECT " + String.join(", ", columns) + " FROM " + table + " WHERE id > ? ORDER BY id LIMIT ?";
+        String upsert = upsert(table, columns);
+
+        long copied = 0;
+        long lastId = 0;
+        while (true) {
+            long afterId = lastId;
+            List<Map<String, Object>> rows = ShardContext.onShard(AppointmentShards.DEFAULT_SHARD,
+                    () -> jdbcTemplate.queryForList(select, afterId, batchSize));
+            if (rows.isEmpty()) {
+                return copied;
+            }
+            long toId = ((Number) rows.get(rows.size() - 1).get("id")).longValue();
+            List<Object[]> values = rows.stream()
+                    .map(row -> columns.stream().map(row::get).toArray())
+                    .toList();
+            List<Object[]> times = !withTimes ? List.of() : ShardContext.onShard(AppointmentShards.DEFAULT_SHARD,
+                    () -> jdbcTemplate.query("SELECT doctor_id, available_times FROM doctor_available_times"
+                                    + " WHERE doctor_id > ? AND doctor_id <= ?",
+                            (rs, i) -> new Object[]{rs.getLong(1), rs.getString(2)}, afterId, toId));
+            for (Target target : targets) {
+                target.tx.executeWithoutResult(status -> {
+                    target.jdbc.batchUpdate(upsert, values);
+                    if (withTimes) {
+                        target.jdbc.update("DELETE FROM doctor_available_times WHERE doctor_id > ? AND doctor_id <= ?",
+                                afterId, toId);
+                        target.jdbc.batchUpdate("INSERT INTO doctor_available_times (doctor_id, available_times)"
+                                + " VALUES (?, ?)", times);
+                    }
+                });
+            }
+            copied += rows.size();
+            lastId = toId;
+            if (rows.size() < batchSize) {
+                return copied;
+            }
+        }
+    }
+
+    // ------------------- HELPERS -------------------
+
+    private void afterCommit(String what, Consumer<Target> write) {
+        Runnable copy = () -> {
+            for (Target target : targets) {
+                try {
+                    target.tx.executeWithoutResult(status -> write.accept(target));
+                } catch (Exception e) {
+                    log.error("Copying {} to {} failed; run admin/shards/replicate to catch up", what, target.name, e);
+                }
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    copy.run();
+                }
+            });
+        } else {
+            copy.run();
+        }
+    }
+
+    private static String upsert(String table, List<String> columns) {
+        return "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES ("
+                + String.join(", ", columns.stream().map(column -> "?").toList()) + ") ON DUPLICATE KEY UPDATE "
+                + String.join(", ", columns.stream().filter(column -> !column.equals("id"))
+                        .map(column -> column + " = VALUES(" + column + ")").toList());
+    }
+
+    private record Target(String name, JdbcTemplate jdbc, TransactionTemplate tx) {
+    }
+}
@@ -1,5 +1,6 @@
 package com.project.back_end.services;
 
+import com.project.back_end.config.ReplicaRoutingContext;
 import com.project.back_end.models.Admin;
 import com.project.back_end.models.Doctor;
 import com.project.back_end.models.Patient;
@@ -12,6 +13,7 @@ import io.jsonwebtoken.Jws;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.annotation.Timed;
 import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
@@ -68,18 +70,21 @@ public String extractIdentifier(String token) {
     return jws.getBody().getSubject();
 }
 
-    // Validate token by checking existence of the ID for the given user type
+    // Validate token by checking existence of the ID for the given user type.
+    // findById rather than existsById: the former is served from the second-level cache, the latter always runs a count query.
+    @Timed(value = "clinic.token.validate", description = "Token signature check and user lookup")
     public boolean validateToken(String token, String userType) {
         try {
             String subject = extractIdentifier(token);
             Long id = Long.parseLong(subject);
 
-            return switch (userType.toLowerCase()) {
-                case "admin" -> adminRepository.existsById(id);
-                case "doctor" -> doctorRepository.existsById(id);
-                case "patient" -> patientRepository.existsById(id);
+            // On the primary: a user who signed up moments ago may not be on a replica yet
+            return ReplicaRoutingContext.onPrimary(() -> switch (userType.toLowerCase()) {
+                case "admin" -> adminRepository.findById(id).isPresent();
+                case "doctor" -> doctorRepository.findById(id).isPresent();
+                case "patient" -> patientRepository.findById(id).isPresent();
                 default -> false;
-            };
+            });
         } catch (Exception e) {
             return false;
         }
@@ -89,6 +94,15 @@ public String extractIdentifier(String token) {
         return signingKey;
     }
 
+    // Numeric subject without a repository lookup; only for tokens already checked with validateToken
+    public Long extractUserId(String token) {
+        try {
+            return Long.parseLong(extractIdentifier(token));
+        } catch (NumberFormatException e) {
+            throw new RuntimeException("Invalid identifier in token");
+        }
+    }
+
     public Long extractDoctorId(String token) {
         String subject = extractIdentifier(token);
         try {
@@ -1,5 +1,5 @@
 // patientAppointment.js
-import { getPatientAppointments, getPatientData, filterAppointments } from "./services/patientServices.js";
+import { getPatientAppointments, getPatientData, getPatientDashboard, filterAppointments } from "./services/patientServices.js";
 
 const tableBody = document.getElementById("patientTableBody");
 const token = localStorage.getItem("token");
@@ -14,12 +14,14 @@ async function initializePage() {
   try {
     if (!token) throw new Error("No token found");
 
-    const patient = await getPatientData(token);
+    // One round trip for patient + appointments; fall back to the separate calls if a section is missing
+    const dashboard = await getPatientDashboard(token);
+    const patient = dashboard?.patient || await getPatientData(token);
     if (!patient) throw new Error("Failed to fetch patient details");
 
     patientId = Number(patient.id);
 
-    const appointmentData = await getPatientAppointments(patientId, token, "patient") || [];
+    const appointmentData = dashboard?.appointments || await getPatientAppointments(patientId, token, "patient") || [];
     allAppointments = appointmentData.filter(app => app.patientId === patientId);
 
     renderAppointments(allAppointments);
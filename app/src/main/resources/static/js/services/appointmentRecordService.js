@@ -3,9 +3,12 @@ import { API_BASE_URL } from "../config/config.js";
 const APPOINTMENT_API = `${API_BASE_URL}/appointments`;
 
 
+// Only the columns the doctor's day table renders
+const DAY_VIEW_FIELDS = "id,doctorId,patientId,patientName,patientPhone,patientEmail";
+
 //This is for the doctor to get all the patient Appointments
 export async function getAllAppointments(date, patientName, token) {
-  const response = await fetch(`${APPOINTMENT_API}/${date}/${patientName}/${token}`);
+  const response = await fetch(`${APPOINTMENT_API}/${date}/${patientName}/${token}?fields=${DAY_VIEW_FIELDS}`);
   if (!response.ok) {
     throw new Error("Failed to fetch appointments");
   }
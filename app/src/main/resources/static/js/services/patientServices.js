@@ -54,10 +54,26 @@ export async function getPatientData(token) {
   }
 }
 
+// Patient and appointments in a single request (used by the patient appointments page).
+// Sections the server could not load in time are null and listed in data.errors.
+export async function getPatientDashboard(token) {
+  try {
+    const response = await fetch(`${PATIENT_API}/dashboard/${token}`);
+    const data = await response.json();
+    if (response.ok) return data;
+    return null;
+  } catch (error) {
+    console.error("Error fetching patient dashboard:", error);
+    return null;
+  }
+}
+
 // the Backend API for fetching the patient record(visible in Doctor Dashboard) and Appointments (visible in Patient Dashboard) are same based on user(patient/doctor).
-export async function getPatientAppointments(id, token, user) {
+// Optional fields (e.g. "id,appointmentDate") narrows each appointment to those properties
+export async function getPatientAppointments(id, token, user, fields) {
   try {
-    const response = await fetch(`${PATIENT_API}/${id}/${user}/${token}`);
+    const query = fields ? `?fields=${encodeURIComponent(fields)}` : "";
+    const response = await fetch(`${PATIENT_API}/${id}/${user}/${token}${query}`);
     const data = await response.json();
     console.log(data.appointments)
     if (response.ok) {
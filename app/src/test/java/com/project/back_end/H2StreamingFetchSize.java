@@ -0,0 +1,79 @@
+package com.project.back_end;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.lang.NonNull;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Lets streamed queries run on H2: their Connector/J fetch size
+ * ({@code Integer.MIN_VALUE}, row-by-row streaming) is rejected by H2,
+ * so negative fetch sizes are ignored and H2 reads with its default.
+ */
+@TestConfiguration
+public class H2StreamingFetchSize {
+
+    @Bean
+    static BeanPostProcessor h2StreamingFetchSizePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(@NonNull Object bean, @NonNull String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof FetchSizeDataSource)) {
+                    return new FetchSizeDataSource(dataSource);
+                }
+                return bean;
+            }
+        };
+    }
+
+    private static final class FetchSizeDataSource extends DelegatingDataSource {
+
+        private FetchSizeDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        @NonNull
+        public Connection getConnection() throws SQLException {
+            return wrap(super.getConnection(), Connection.class);
+        }
+
+        @Override
+        @NonNull
+        public Connection getConnection(@NonNull String username, @NonNull String password) throws SQLException {
+            return wrap(super.getConnection(username, password), Connection.class);
+        }
+    }
+
+    // Statements created through the wrapper are wrapped too, under the interface the factory method declares
+    private static <T> T wrap(T target, Class<T> type) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (method.getName().equals("setFetchSize") && (int) args[0] < 0) {
+                return null;
+            }
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (result != null && Statement.class.isAssignableFrom(method.getReturnType())) {
+                return wrap(result, castType(method.getReturnType()));
+            }
+            return result;
+        }));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Class<T> castType(Class<?> type) {
+        return (Class<T>) type;
+    }
+}
@@ -0,0 +1,124 @@
+package com.project.back_end.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BulkheadTests {
+
+    @Test
+    void admitsUpToMaxConcurrentWithoutWaiting() {
+        Bulkhead bulkhead = new Bulkhead("test", 2, 0, Duration.ZERO);
+
+        assertTrue(bulkhead.tryAcquire());
+        assertTrue(bulkhead.tryAcquire());
+        assertFalse(bulkhead.tryAcquire());
+        assertEquals(2, bulkhead.getInUse());
+        assertEquals(1, bulkhead.getRejectedCount());
+
+        bulkhead.release();
+        assertTrue(bulkhead.tryAcquire());
+    }
+
+    @Test
+    void slowDependencyRejectsCallersAfterMaxWait() throws Exception {
+        Bulkhead bulkhead = new Bulkhead("test", 2, 10, Duration.ofMillis(100));
+        CountDownLatch holding = new CountDownLatch(2);
+        CountDownLatch finish = new CountDownLatch(1);
+        // Injected latency: both permits are held by calls that do not return until released
+        Supplier<String> slowCall = () -> {
+            holding.countDown();
+            await(finish);
+            return "done";
+        };
+        CompletableFuture<Boolean> first = callAsync(bulkhead, slowCall);
+        CompletableFuture<Boolean> second = callAsync(bulkhead, slowCall);
+        assertTrue(holding.await(5, TimeUnit.SECONDS));
+
+        long start = System.nanoTime();
+        assertFalse(bulkhead.tryAcquire());
+        long waitedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(waitedMillis >= 90, "gave up after " + waitedMillis + " ms");
+        assertTrue(waitedMillis < 2000, "waited " + waitedMillis + " ms");
+        assertEquals(1, bulkhead.getRejectedCount());
+
+        finish.countDown();
+        assertTrue(first.get(5, TimeUnit.SECONDS));
+        assertTrue(second.get(5, TimeUnit.SECONDS));
+        assertEquals(0, bulkhead.getInUse());
+    }
+
+    @Test
+    void waiterGetsPermitReleasedWithinMaxWait() throws Exception {
+        Bulkhead bulkhead = new Bulkhead("test", 1, 1, Duration.ofSeconds(5));
+        assertTrue(bulkhead.tryAcquire());
+
+        CompletableFuture<Boolean> waiter = CompletableFuture.supplyAsync(bulkhead::tryAcquire, Thread::startVirtualThread);
+        awaitWaiting(bulkhead, 1);
+        bulkhead.release();
+
+        assertTrue(waiter.get(5, TimeUnit.SECONDS));
+        assertEquals(0, bulkhead.getRejectedCount());
+    }
+
+    @Test
+    void fullQueueRejectsWithoutWaiting() throws Exception {
+        Bulkhead bulkhead = new Bulkhead("test", 1, 1, Duration.ofSeconds(5));
+        assertTrue(bulkhead.tryAcquire());
+        CompletableFuture<Boolean> queued = CompletableFuture.supplyAsync(bulkhead::tryAcquire, Thread::startVirtualThread);
+        awaitWaiting(bulkhead, 1);
+
+        long start = System.nanoTime();
+        assertFalse(bulkhead.tryAcquire());
+        long waitedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(waitedMillis < 1000, "waited " + waitedMillis + " ms");
+        assertEquals(1, bulkhead.getRejectedCount());
+
+        bulkhead.release();
+        assertTrue(queued.get(5, TimeUnit.SECONDS));
+    }
+
+    // ------------------- HELPERS -------------------
+
+    // A guarded call, as BulkheadConfig makes around each datastore call
+    private static CompletableFuture<Boolean> callAsync(Bulkhead bulkhead, Supplier<String> call) {
+        return CompletableFuture.supplyAsync(() -> {
+            if (!bulkhead.tryAcquire()) {
+                return false;
+            }
+            try {
+                call.get();
+                return true;
+            } finally {
+                bulkhead.release();
+            }
+        }, Thread::startVirtualThread);
+    }
+
+    private static void awaitWaiting(Bulkhead bulkhead, int waiting) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (bulkhead.getWaiting() < waiting) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("No caller queued on the bulkhead");
+            }
+            Thread.sleep(5);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.project.back_end.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QueryBudgetContextTests {
+
+    @Test
+    void countsStatementsAndCommandsAgainstTheBoundTracker() {
+        try {
+            QueryBudgetContext.Tracker tracker = QueryBudgetContext.begin(10, 5, false);
+            assertSame(tracker, QueryBudgetContext.current());
+            assertNull(tracker.mostRepeated());
+
+            QueryBudgetContext.recordSql("select * from doctor where id=?");
+            QueryBudgetContext.recordSql("select * from patient where id=?");
+            QueryBudgetContext.recordSql("select * from doctor where id=?");
+            QueryBudgetContext.recordMongoCommand();
+
+            assertEquals(3, tracker.getSqlCount());
+            assertEquals(1, tracker.getMongoCount());
+            assertEquals(10, tracker.getSqlBudget());
+            assertEquals(5, tracker.getMongoBudget());
+            assertEquals(Map.entry("select * from doctor where id=?", 2), tracker.mostRepeated());
+        } finally {
+            QueryBudgetContext.detach();
+        }
+    }
+
+    @Test
+    void nothingIsCountedWithoutATracker() {
+        QueryBudgetContext.Tracker tracker = QueryBudgetContext.begin(10, 5, false);
+        QueryBudgetContext.detach();
+
+        QueryBudgetContext.recordSql("select 1");
+        QueryBudgetContext.recordMongoCommand();
+
+        assertNull(QueryBudgetContext.current());
+        assertEquals(0, tracker.getSqlCount());
+        assertEquals(0, tracker.getMongoCount());
+    }
+
+    @Test
+    void overrunsAreOnlyCountedWhenNotEnforced() {
+        try {
+            QueryBudgetContext.Tracker tracker = QueryBudgetContext.begin(1, 0, false);
+            QueryBudgetContext.recordSql("select 1");
+            QueryBudgetContext.recordSql("select 2");
+            QueryBudgetContext.recordMongoCommand();
+
+            assertEquals(2, tracker.getSqlCount());
+            assertEquals(1, tracker.getMongoCount());
+        } finally {
+            QueryBudgetContext.detach();
+        }
+    }
+
+    @Test
+    void enforcedBudgetFailsAtTheFirstStatementOver() {
+        try {
+            QueryBudgetContext.begin(2, 0, true);
+            QueryBudgetContext.recordSql("select 1");
+            QueryBudgetContext.recordSql("select 2");
+
+            IllegalStateException e = assertThrows(IllegalStateException.class,
+                    () -> QueryBudgetContext.recordSql("select 3"));
+            assertEquals("Query budget exceeded: SQL statement 3 of 2 allowed: select 3", e.getMessage());
+            // Mongo overruns are never enforced
+            QueryBudgetContext.recordMongoCommand();
+        } finally {
+            QueryBudgetContext.detach();
+        }
+    }
+
+    @Test
+    void distinctStatementsAreBoundedButAllCounted() {
+        try {
+            QueryBudgetContext.Tracker tracker = QueryBudgetContext.begin(1000, 0, false);
+            for (int i = 0; i < 300; i++) {
+                QueryBudgetContext.recordSql("select " + i);
+            }
+            // Past the distinct-statement bound new strings are counted but not tracked for repeats
+            QueryBudgetContext.recordSql("select 299");
+            QueryBudgetContext.recordSql("select 299");
+            QueryBudgetContext.recordSql("select 7");
+
+            assertEquals(303, tracker.getSqlCount());
+            assertEquals(Map.entry("select 7", 2), tracker.mostRepeated());
+        } finally {
+            QueryBudgetContext.detach();
+        }
+    }
+
+    @Test
+    void propagateCountsWorkOnOtherThreadsAgainstTheCaller() {
+        try {
+            QueryBudgetContext.Tracker tracker = QueryBudgetContext.begin(10, 5, false);
+            Supplier<Boolean> work = QueryBudgetContext.propagate(() -> {
+                QueryBudgetContext.recordSql("select * from appointment where doctor_id=?");
+                QueryBudgetContext.recordMongoCommand();
+                return QueryBudgetContext.current() == tracker;
+            });
+
+            assertTrue(CompletableFuture.supplyAsync(work).join());
+            assertEquals(1, tracker.getSqlCount());
+            assertEquals(1, tracker.getMongoCount());
+        } finally {
+            QueryBudgetContext.detach();
+        }
+    }
+
+    @Test
+    void propagateRestoresTheWorkerThreadsOwnTracker() {
+        try {
+            QueryBudgetContext.Tracker request = QueryBudgetContext.begin(10, 5, false);
+            Supplier<Integer> work = QueryBudgetContext.propagate(() -> {
+                QueryBudgetContext.recordSql("select 1");
+                return 0;
+            });
+            QueryBudgetContext.detach();
+
+            // Run on a thread with a tracker of its own (here the same thread, rebound)
+            QueryBudgetContext.Tracker worker = QueryBudgetContext.begin(10, 5, false);
+            work.get();
+            assertSame(worker, QueryBudgetContext.current());
+            assertEquals(1, request.getSqlCount());
+            assertEquals(0, worker.getSqlCount());
+
+            // With no tracker bound at propagate time the action is returned unwrapped
+            QueryBudgetContext.detach();
+            Supplier<Integer> unbound = () -> 1;
+            assertSame(unbound, QueryBudgetContext.propagate(unbound));
+        } finally {
+            QueryBudgetContext.detach();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.project.back_end.config;
+
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultMatcher;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * MockMvc matchers over the request's {@link QueryBudgetContext.Tracker}.
+ * For a streamed or otherwise async handler, apply them to the result of
+ * {@code asyncDispatch(...)}, when the whole body has been written.
+ */
+public final class QueryBudgetMatchers {
+
+    private QueryBudgetMatchers() {
+    }
+
+    // The handler's @QueryBudget, or the defaults, for both stores
+    public static ResultMatcher withinQueryBudget() {
+        return result -> {
+            QueryBudgetContext.Tracker tracker = tracker(result);
+            assertTrue(tracker.getSqlCount() <= tracker.getSqlBudget(),
+                    "Ran " + tracker.getSqlCount() + " SQL statements, budget " + tracker.getSqlBudget());
+            assertTrue(tracker.getMongoCount() <= tracker.getMongoBudget(),
+                    "Ran " + tracker.getMongoCount() + " Mongo commands, budget " + tracker.getMongoBudget());
+        };
+    }
+
+    // Fails when one statement ran at least this often: the shape of an N+1
+    public static ResultMatcher noStatementRepeated(int times) {
+        return result -> {
+            Map.Entry<String, Integer> repeated = tracker(result).mostRepeated();
+            assertTrue(repeated == null || repeated.getValue() < times,
+                    () -> "Same statement ran " + repeated.getValue() + " times (likely N+1): " + repeated.getKey());
+        };
+    }
+
+    public static ResultMatcher sqlStatements(int max) {
+        return result -> {
+            int count = tracker(result).getSqlCount();
+            assertTrue(count <= max, "Ran " + count + " SQL statements, expected at most " + max);
+        };
+    }
+
+    private static QueryBudgetContext.Tracker tracker(MvcResult result) {
+        QueryBudgetContext.Tracker tracker = QueryBudgetInterceptor.trackerOf(result.getRequest());
+        assertNotNull(tracker, "No query budget tracker on the request; was it served by a handler method?");
+        return tracker;
+    }
+}
@@ -0,0 +1,193 @@
+package com.project.back_end.config;
+
+import com.project.back_end.models.Doctor;
+import com.project.back_end.models.Patient;
+import com.project.back_end.repo.AppointmentRepository;
+import com.project.back_end.repo.DoctorRepository;
+import com.project.back_end.repo.PatientRepository;
+import com.project.back_end.services.TokenService;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Primary and replica are two in-memory databases; "replication" is an explicit snapshot, so lag is visible
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class ReplicaRoutingTests {
+
+    private static final String REPLICA = "jdbc:h2:mem:replica-" + UUID.randomUUID() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE";
+
+    // Holds the replica database open between tests, and lets the fallback test shut it down
+    private static Connection replicaKeeper;
+
+    @DynamicPropertySource
+    static void replica(DynamicPropertyRegistry registry) throws SQLException {
+        replicaKeeper = DriverManager.getConnection(REPLICA, "sa", "");
+        // The pool may only reach an existing database: once shut down it stays unreachable
+        registry.add("datasource.replicas.urls", () -> REPLICA + ";IFEXISTS=TRUE");
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ReplicaRouter replicaRouter;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private TokenService tokenService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void setUp() {
+        appointmentRepository.deleteAll();
+        doctorRepository.deleteAll();
+        patientRepository.deleteAll();
+    }
+
+    @AfterEach
+    void clearSession() {
+        ReplicaRoutingContext.clearSession();
+    }
+
+    @Test
+    @Order(1)
+    void readOnlyRepositoryCallsReadTheReplica() {
+        doctorRepository.save(doctor("replicated"));
+        replicate();
+        doctorRepository.save(doctor("lagging"));
+
+        List<String> fromReplica = doctorRepository.findAll().stream().map(Doctor::getName).toList();
+        List<String> fromPrimary = ReplicaRoutingContext.onPrimary(() -> doctorRepository.findAll()).stream()
+                .map(Doctor::getName).toList();
+
+        assertEquals(List.of("Dr replicated"), fromReplica);
+        assertEquals(List.of("Dr replicated", "Dr lagging"), fromPrimary);
+    }
+
+    @Test
+    @Order(2)
+    void bookingSessionReadsItsOwnWrites() throws Exception {
+        Doctor doctor = doctorRepository.save(doctor("booked"));
+        Patient patient = patientRepository.save(new Patient(null, "Replica Patient",
+                "replica.patient@example.com", "secret1", "5550004444", "4 Replica Road"));
+        replicate();
+        String token = tokenService.generateToken(patient.getId().toString());
+
+        mockMvc.perform(post("/appointments/{token}", token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"doctor": {"id": %d}, "patient": {"id": %d}, "appointmentTime": "%s", "status": 0}
+                                """.formatted(doctor.getId(), patient.getId(), LocalDateTime.now().plusDays(4).withNano(0))))
+                .andExpect(status().isCreated());
+
+        // The booking session reads from the primary; anyone else still sees the replica without it
+        mockMvc.perform(get("/patient/{id}/{token}", patient.getId(), token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.appointments.length()").value(1));
+        ReplicaRoutingContext.setSession(token);
+        assertEquals(1, countAppointments(patient));
+        ReplicaRoutingContext.clearSession();
+        assertEquals(0, countAppointments(patient));
+    }
+
+    @Test
+    @Order(3)
+    @DirtiesContext
+    void unreachableReplicaFallsBackToThePrimaryQuickly() throws SQLException {
+        doctorRepository.save(doctor("primary only"));
+        try (Statement statement = replicaKeeper.createStatement()) {
+            statement.execute("SHUTDOWN");
+        }
+        // Drop the pooled connections to the old database, as a restart of the replica would
+        ((HikariDataSource) replicaRouter.getReplicaDataSources().get("replica-1"))
+                .getHikariPoolMXBean().softEvictConnections();
+        long fallbacks = (long) replicaRouter.getStats().get("fallbacksToPrimary");
+
+        long start = System.nanoTime();
+        List<Doctor> doctors = doctorRepository.findAll();
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(1, doctors.size());
+        assertEquals(fallbacks + 1, (long) replicaRouter.getStats().get("fallbacksToPrimary"));
+        // health-check-timeout-seconds=1 bounds the wait, not Hikari's 30 s default
+        assertTrue(elapsedMs < 5000, "Fallback took " + elapsedMs + " ms");
+
+        // Marked unhealthy: the next read goes straight to the primary
+        start = System.nanoTime();
+        doctorRepository.findAll();
+        assertTrue((System.nanoTime() - start) / 1_000_000 < 500);
+    }
+
+    private int countAppointments(Patient patient) {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        return readOnly.execute(status -> appointmentRepository.findByPatientId(patient.getId()).size());
+    }
+
+    // Copies the primary's schema and rows onto the replica, like replication catching up
+    private void replicate() {
+        List<String> script = jdbcTemplate.queryForList("SCRIPT", String.class);
+        JdbcTemplate replica = new JdbcTemplate(new SingleConnectionDataSource(replicaKeeper, true));
+        replica.execute("DROP ALL OBJECTS");
+        script.forEach(replica::execute);
+    }
+
+    private static Doctor doctor(String name) {
+        Doctor doctor = new Doctor();
+        doctor.setName("Dr " + name);
+        doctor.setSpecialty("Cardiology");
+        doctor.setEmail(name.replace(' ', '.') + ".doctor@example.com");
+        doctor.setPassword("secret1");
+        doctor.setPhone("5551112222");
+        doctor.setAvailableTimes(List.of("09:00-10:00"));
+        return doctor;
+    }
+}
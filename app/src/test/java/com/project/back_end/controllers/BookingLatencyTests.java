@@ -0,0 +1,163 @@
+package com.project.back_end.controllers;
+
+import com.project.back_end.models.Doctor;
+import com.project.back_end.models.Patient;
+import com.project.back_end.repo.DoctorRepository;
+import com.project.back_end.repo.PatientRepository;
+import com.project.back_end.services.TokenService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Slow Mongo must only slow the endpoints that use it: booking keeps its latency
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class BookingLatencyTests {
+
+    private static final long MONGO_LATENCY_MS = 1000;
+    private static final int BOOKINGS = 50;
+    private static final int PRESCRIPTION_CALLERS = 8;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private TokenService tokenService;
+
+    @TestConfiguration
+    static class SlowMongo {
+
+        // Replaces Boot's MongoTemplate; the bulkhead proxy still wraps it
+        @Bean
+        MongoTemplate mongoTemplate(MongoDatabaseFactory mongoDatabaseFactory, MongoConverter mongoConverter) {
+            return new SlowMongoTemplate(mongoDatabaseFactory, mongoConverter);
+        }
+    }
+
+    static class SlowMongoTemplate extends MongoTemplate {
+
+        static final AtomicInteger calls = new AtomicInteger();
+
+        SlowMongoTemplate(MongoDatabaseFactory mongoDatabaseFactory, MongoConverter mongoConverter) {
+            super(mongoDatabaseFactory, mongoConverter);
+        }
+
+        @Override
+        public <T> List<T> find(Query query, Class<T> entityClass, String collectionName) {
+            calls.incrementAndGet();
+            try {
+                Thread.sleep(MONGO_LATENCY_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return List.of();
+        }
+    }
+
+    @Test
+    void bookingLatencyStaysFlatWhileMongoIsSlow() throws Exception {
+        Doctor doctor = doctorRepository.save(doctor());
+        Patient patient = patientRepository.save(new Patient(null, "Latency Patient", "latency.patient@example.com",
+                "secret1", "5550002222", "2 Latency Road"));
+        String patientToken = tokenService.generateToken(patient.getId().toString());
+        String doctorToken = tokenService.generateToken(doctor.getId().toString());
+        LocalDateTime firstSlot = LocalDateTime.now().plusDays(1).withHour(8).withMinute(0).withSecond(0).withNano(0);
+
+        // Warm-up and baseline, Mongo idle
+        book(patientToken, doctor.getId(), patient.getId(), firstSlot.minusDays(1).plusMonths(1), 1);
+        long baselineP99 = p99(book(patientToken, doctor.getId(), patient.getId(), firstSlot, BOOKINGS));
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService callers = Executors.newFixedThreadPool(PRESCRIPTION_CALLERS);
+        try {
+            for (int i = 0; i < PRESCRIPTION_CALLERS; i++) {
+                callers.submit(() -> {
+                    while (running.get()) {
+                        mockMvc.perform(get("/prescription/search/{token}", doctorToken).param("q", "amox"));
+                    }
+                    return null;
+                });
+            }
+            long deadline = System.currentTimeMillis() + 5000;
+            while (SlowMongoTemplate.calls.get() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue(SlowMongoTemplate.calls.get() > 0, "Prescription searches never reached Mongo");
+
+            long loadedP99 = p99(book(patientToken, doctor.getId(), patient.getId(), firstSlot.plusDays(7), BOOKINGS));
+
+            assertTrue(loadedP99 < MONGO_LATENCY_MS / 2,
+                    "Booking p99 " + loadedP99 + " ms waited on Mongo (" + MONGO_LATENCY_MS + " ms per call)");
+            assertTrue(loadedP99 <= baselineP99 * 3 + 50,
+                    "Booking p99 went from " + baselineP99 + " ms to " + loadedP99 + " ms with Mongo slow");
+        } finally {
+            running.set(false);
+            callers.shutdown();
+            callers.awaitTermination(MONGO_LATENCY_MS * 3, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // Books one-hour slots from first on; returns each request's latency in ms
+    private List<Long> book(String token, Long doctorId, Long patientId, LocalDateTime first, int count) throws Exception {
+        List<Long> latencies = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String body = """
+                    {"doctor": {"id": %d}, "patient": {"id": %d}, "appointmentTime": "%s", "status": 0}
+                    """.formatted(doctorId, patientId, first.plusHours(i));
+            long start = System.nanoTime();
+            mockMvc.perform(post("/appointments/{token}", token).contentType(MediaType.APPLICATION_JSON).content(body))
+                    .andExpect(status().isCreated());
+            latencies.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+        return latencies;
+    }
+
+    private static long p99(List<Long> latencies) {
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+        return sorted.get((int) Math.ceil(sorted.size() * 0.99) - 1);
+    }
+
+    private static Doctor doctor() {
+        Doctor doctor = new Doctor();
+        doctor.setName("Dr Latency");
+        doctor.setSpecialty("Cardiology");
+        doctor.setEmail("latency.doctor@example.com");
+        doctor.setPassword("secret1");
+        doctor.setPhone("5551230000");
+        doctor.setAvailableTimes(List.of("09:00-10:00"));
+        return doctor;
+    }
+}
@@ -0,0 +1,103 @@
+package com.project.back_end.controllers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.project.back_end.models.Doctor;
+import com.project.back_end.models.Patient;
+import com.project.back_end.repo.DoctorRepository;
+import com.project.back_end.repo.PatientRepository;
+import com.project.back_end.services.TokenService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class IdempotentReplayTests {
+
+    private static final ObjectMapper CBOR = new ObjectMapper(new CBORFactory());
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private TokenService tokenService;
+
+    private String token;
+    private String body;
+
+    @BeforeEach
+    void setUp() {
+        Doctor doctor = new Doctor();
+        doctor.setName("Dr Replay");
+        doctor.setSpecialty("Neurology");
+        doctor.setEmail("replay.doctor." + System.nanoTime() + "@example.com");
+        doctor.setPassword("secret1");
+        doctor.setPhone("5559876543");
+        doctor.setAvailableTimes(List.of("09:00-10:00"));
+        doctor = doctorRepository.save(doctor);
+        Patient patient = patientRepository.save(new Patient(null, "Replay Patient",
+                "replay.patient." + System.nanoTime() + "@example.com", "secret1", "5550003333", "3 Replay Way"));
+
+        token = tokenService.generateToken(patient.getId().toString());
+        body = """
+                {"doctor": {"id": %d}, "patient": {"id": %d}, "appointmentTime": "%s", "status": 0}
+                """.formatted(doctor.getId(), patient.getId(), LocalDateTime.now().plusDays(5).withNano(0));
+    }
+
+    @Test
+    void cborRetryIsReplayedAsCbor() throws Exception {
+        MockHttpServletResponse first = book("cbor-retry", MediaType.APPLICATION_CBOR);
+        MockHttpServletResponse retry = book("cbor-retry", MediaType.APPLICATION_CBOR);
+
+        assertEquals(201, first.getStatus());
+        assertNull(first.getHeader("Idempotent-Replayed"));
+        assertEquals(201, retry.getStatus());
+        assertEquals("true", retry.getHeader("Idempotent-Replayed"));
+        assertEquals(MediaType.APPLICATION_CBOR_VALUE, retry.getContentType());
+        assertEquals(CBOR.readTree(first.getContentAsByteArray()), CBOR.readTree(retry.getContentAsByteArray()));
+    }
+
+    @Test
+    void retryGetsTheFormatItAsksFor() throws Exception {
+        MockHttpServletResponse first = book("format-switch", MediaType.APPLICATION_CBOR);
+        MockHttpServletResponse retry = book("format-switch", MediaType.APPLICATION_JSON);
+
+        assertEquals("true", retry.getHeader("Idempotent-Replayed"));
+        assertEquals(MediaType.APPLICATION_JSON_VALUE, retry.getContentType());
+        JsonNode original = CBOR.readTree(first.getContentAsByteArray());
+        assertEquals(original, JSON.readTree(retry.getContentAsByteArray()));
+    }
+
+    private MockHttpServletResponse book(String key, MediaType accept) throws Exception {
+        return mockMvc.perform(post("/appointments/{token}", token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(accept)
+                        .header("Idempotency-Key", key)
+                        .content(body))
+                .andReturn()
+                .getResponse();
+    }
+}
@@ -0,0 +1,188 @@
+package com.project.back_end.controllers;
+
+import com.project.back_end.H2StreamingFetchSize;
+import com.project.back_end.models.Appointment;
+import com.project.back_end.models.Doctor;
+import com.project.back_end.models.Patient;
+import com.project.back_end.repo.AppointmentRepository;
+import com.project.back_end.repo.DoctorRepository;
+import com.project.back_end.repo.PatientRepository;
+import com.project.back_end.services.TokenService;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.project.back_end.config.QueryBudgetMatchers.noStatementRepeated;
+import static com.project.back_end.config.QueryBudgetMatchers.withinQueryBudget;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// List endpoints run a fixed number of statements however many rows they return
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Import({H2StreamingFetchSize.class, QueryBudgetEndpointTests.NPlusOneEndpoint.class})
+class QueryBudgetEndpointTests {
+
+    private static final int ROWS = 6;
+    // query-budget.repeat-threshold
+    private static final int REPEATS = 5;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private TokenService tokenService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private final List<Doctor> doctors = new ArrayList<>();
+    private final List<Patient> patients = new ArrayList<>();
+    private LocalDate day;
+
+    @TestConfiguration
+    static class NPlusOneEndpoint {
+
+        @Bean
+        NPlusOneController nPlusOneController(AppointmentRepository appointmentRepository,
+                                              TransactionTemplate transactionTemplate) {
+            return new NPlusOneController(appointmentRepository, transactionTemplate);
+        }
+    }
+
+    // Loads the appointments, then each patient lazily: one extra SELECT per row
+    @RestController
+    static class NPlusOneController {
+
+        private final AppointmentRepository appointmentRepository;
+        private final TransactionTemplate transactionTemplate;
+
+        NPlusOneController(AppointmentRepository appointmentRepository, TransactionTemplate transactionTemplate) {
+            this.appointmentRepository = appointmentRepository;
+            this.transactionTemplate = transactionTemplate;
+        }
+
+        @GetMapping("/test/patient-names/{doctorId}/{date}")
+        public List<String> patientNames(@PathVariable Long doctorId, @PathVariable String date) {
+            LocalDate day = LocalDate.parse(date);
+            return transactionTemplate.execute(status -> appointmentRepository
+                    .findByDoctorIdAndAppointmentTimeBetween(doctorId, day.atStartOfDay(), day.plusDays(1).atStartOfDay())
+                    .stream()
+                    .map(appointment -> appointment.getPatient().getName())
+                    .toList());
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        appointmentRepository.deleteAll();
+        doctorRepository.deleteAll();
+        patientRepository.deleteAll();
+        day = LocalDate.now().plusDays(2);
+
+        for (int i = 0; i < ROWS; i++) {
+            Doctor doctor = new Doctor();
+            doctor.setName("Dr Budget " + i);
+            doctor.setSpecialty("Pediatrics");
+            doctor.setEmail("budget.doctor" + i + "@example.com");
+            doctor.setPassword("secret1");
+            doctor.setPhone("555444000" + i);
+            doctor.setAvailableTimes(List.of("09:00-10:00", "10:00-11:00"));
+            doctors.add(doctorRepository.save(doctor));
+            patients.add(patientRepository.save(new Patient(null, "Budget Patient " + i,
+                    "budget.patient" + i + "@example.com", "secret1", "555333000" + i, i + " Budget Street")));
+        }
+        // The first patient sees every doctor; the first doctor sees every patient
+        for (int i = 0; i < ROWS; i++) {
+            save(doctors.get(i), patients.get(0), i);
+            if (i > 0) {
+                save(doctors.get(0), patients.get(i), i);
+            }
+        }
+        // Cold caches: lazy loads would reach the database and show up as statements
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    @Test
+    void patientHistoryRunsNoStatementPerAppointment() throws Exception {
+        Patient patient = patients.get(0);
+        String token = tokenService.generateToken(patient.getId().toString());
+
+        mockMvc.perform(get("/patient/{id}/{token}", patient.getId(), token))
+                .andExpect(status().isOk())
+                .andExpect(withinQueryBudget())
+                .andExpect(noStatementRepeated(REPEATS));
+    }
+
+    @Test
+    void doctorDayViewRunsNoStatementPerAppointment() throws Exception {
+        Doctor doctor = doctors.get(0);
+        String token = tokenService.generateToken(doctor.getId().toString());
+
+        MvcResult streaming = mockMvc.perform(get("/appointments/{date}/{patientName}/{token}", day, "Budget", token))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(streaming))
+                .andExpect(status().isOk())
+                .andExpect(withinQueryBudget())
+                .andExpect(noStatementRepeated(REPEATS));
+    }
+
+    @Test
+    void doctorAvailabilityRunsNoStatementPerAppointment() throws Exception {
+        Doctor doctor = doctors.get(0);
+        String token = tokenService.generateToken(patients.get(0).getId().toString());
+
+        mockMvc.perform(get("/doctor/availability/{user}/{doctorId}/{date}/{token}", "patient", doctor.getId(), day, token))
+                .andExpect(status().isOk())
+                .andExpect(withinQueryBudget())
+                .andExpect(noStatementRepeated(REPEATS));
+    }
+
+    @Test
+    void nPlusOneEndpointFailsTheMatcher() throws Exception {
+        ResultActions result = mockMvc.perform(get("/test/patient-names/{doctorId}/{date}", doctors.get(0).getId(), day))
+                .andExpect(status().isOk());
+
+        assertThrows(AssertionError.class, () -> result.andExpect(noStatementRepeated(REPEATS)));
+    }
+
+    private void save(Doctor doctor, Patient patient, int hour) {
+        Appointment appointment = new Appointment();
+        appointment.setDoctor(doctor);
+        appointment.setPatient(patient);
+        appointment.setAppointmentTime(day.atTime(8 + hour, 0));
+        appointmentRepository.save(appointment);
+    }
+}
@@ -0,0 +1,114 @@
+package com.project.back_end.repo;
+
+import com.project.back_end.models.Doctor;
+import com.project.back_end.models.Patient;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Each repository call runs in its own transaction and session, as it does for requests,
+// so a repeat lookup can only avoid SQL through the second-level and query caches
+@DataJpaTest(properties = "hibernate.statistics.enabled=true")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SecondLevelCacheTests {
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @AfterEach
+    void tearDown() {
+        doctorRepository.deleteAll();
+        patientRepository.deleteAll();
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    @Test
+    void repeatedDoctorFindByIdRunsNoStatement() {
+        Long id = doctorRepository.save(doctor("cache.doctor@example.com")).getId();
+        doctorRepository.findById(id);
+
+        long statements = statistics.getPrepareStatementCount();
+        long hits = statistics.getSecondLevelCacheHitCount();
+        assertTrue(doctorRepository.findById(id).isPresent());
+
+        assertEquals(statements, statistics.getPrepareStatementCount());
+        assertTrue(statistics.getSecondLevelCacheHitCount() > hits);
+    }
+
+    @Test
+    void repeatedDoctorFindByEmailRunsNoStatement() {
+        doctorRepository.save(doctor("lookup.doctor@example.com"));
+        doctorRepository.findByEmail("lookup.doctor@example.com");
+
+        long statements = statistics.getPrepareStatementCount();
+        long queryHits = statistics.getQueryCacheHitCount();
+        assertEquals("lookup.doctor@example.com", doctorRepository.findByEmail("lookup.doctor@example.com").getEmail());
+
+        assertEquals(statements, statistics.getPrepareStatementCount());
+        assertTrue(statistics.getQueryCacheHitCount() > queryHits);
+    }
+
+    @Test
+    void repeatedPatientLookupsRunNoStatement() {
+        Long id = patientRepository.save(new Patient(null, "Cached Patient", "cache.patient@example.com",
+                "secret1", "5550001111", "1 Cache Street")).getId();
+        patientRepository.findById(id);
+        patientRepository.findByEmail("cache.patient@example.com");
+
+        long statements = statistics.getPrepareStatementCount();
+        assertTrue(patientRepository.findById(id).isPresent());
+        assertTrue(patientRepository.findByEmail("cache.patient@example.com").isPresent());
+
+        assertEquals(statements, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void updateEvictsTheCachedLookup() {
+        Doctor saved = doctorRepository.save(doctor("before.update@example.com"));
+        doctorRepository.findByEmail("before.update@example.com");
+
+        saved.setEmail("after.update@example.com");
+        doctorRepository.save(saved);
+
+        // The doctor table changed, so the cached result is stale and the query runs again
+        long statements = statistics.getPrepareStatementCount();
+        assertEquals(null, doctorRepository.findByEmail("before.update@example.com"));
+        assertTrue(statistics.getPrepareStatementCount() > statements);
+    }
+
+    private static Doctor doctor(String email) {
+        Doctor doctor = new Doctor();
+        doctor.setName("Dr Cache");
+        doctor.setSpecialty("Cardiology");
+        doctor.setEmail(email);
+        doctor.setPassword("secret1");
+        doctor.setPhone("5551234567");
+        doctor.setAvailableTimes(List.of("09:00-10:00"));
+        return doctor;
+    }
+}
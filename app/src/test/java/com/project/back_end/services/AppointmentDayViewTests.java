@@ -0,0 +1,115 @@
+package com.project.back_end.services;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.back_end.H2StreamingFetchSize;
+import com.project.back_end.models.Appointment;
+import com.project.back_end.models.Doctor;
+import com.project.back_end.models.Patient;
+import com.project.back_end.repo.AppointmentRepository;
+import com.project.back_end.repo.DoctorRepository;
+import com.project.back_end.repo.PatientRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// The streamed day view must run as one query: a lazy load while the stream is open fails on MySQL
+@SpringBootTest(properties = "hibernate.statistics.enabled=true")
+@ActiveProfiles("test")
+@Import(H2StreamingFetchSize.class)
+class AppointmentDayViewTests {
+
+    @Autowired
+    private AppointmentService appointmentService;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private Statistics statistics;
+    private Doctor doctor;
+    private LocalDate day;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        appointmentRepository.deleteAll();
+        doctorRepository.deleteAll();
+        patientRepository.deleteAll();
+
+        doctor = new Doctor();
+        doctor.setName("Dr Stream");
+        doctor.setSpecialty("Dermatology");
+        doctor.setEmail("stream.doctor@example.com");
+        doctor.setPassword("secret1");
+        doctor.setPhone("5557654321");
+        doctor.setAvailableTimes(List.of("09:00-10:00", "10:00-11:00"));
+        doctor = doctorRepository.save(doctor);
+
+        day = LocalDate.now().plusDays(3);
+        for (int i = 0; i < 3; i++) {
+            Patient patient = patientRepository.save(new Patient(null, "Stream Patient " + i,
+                    "stream.patient" + i + "@example.com", "secret1", "555000111" + i, i + " Stream Lane"));
+            Appointment appointment = new Appointment();
+            appointment.setDoctor(doctor);
+            appointment.setPatient(patient);
+            appointment.setAppointmentTime(day.atTime(9 + i, 0));
+            appointmentRepository.save(appointment);
+        }
+        // Otherwise the available times could come from the second-level cache instead of a lazy load
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    @Test
+    void dayViewStreamsInOneStatement() throws Exception {
+        statistics.clear();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        appointmentService.writeAppointments(doctor.getId(), null, day, out);
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getCollectionFetchCount());
+        JsonNode appointments = objectMapper.readTree(out.toByteArray()).get("appointments");
+        assertEquals(3, appointments.size());
+        for (JsonNode appointment : appointments) {
+            assertEquals(2, appointment.get("doctor").get("availableTimes").size());
+        }
+    }
+
+    @Test
+    void dayViewFilteredByPatientStreamsInOneStatement() throws Exception {
+        statistics.clear();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        appointmentService.writeAppointments(doctor.getId(), "patient 1", day, out);
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getCollectionFetchCount());
+        JsonNode appointments = objectMapper.readTree(out.toByteArray()).get("appointments");
+        assertEquals(1, appointments.size());
+        assertEquals(2, appointments.get(0).get("doctor").get("availableTimes").size());
+    }
+}
@@ -0,0 +1,113 @@
+package com.project.back_end.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AppointmentFieldSetTests {
+
+    private static final LocalDateTime TIME = LocalDateTime.of(2025, 3, 14, 9, 30);
+
+    @Test
+    void unknownOrEmptySelectionsAreRejected() {
+        // The controllers turn these into 400 responses with the message as the error
+        IllegalArgumentException unknown = assertThrows(IllegalArgumentException.class,
+                () -> AppointmentFieldSet.parse("id,password"));
+        assertEquals("Unknown field: password", unknown.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> AppointmentFieldSet.normalize("id,password"));
+
+        IllegalArgumentException empty = assertThrows(IllegalArgumentException.class,
+                () -> AppointmentFieldSet.parse(" , ,"));
+        assertEquals("No fields selected", empty.getMessage());
+    }
+
+    @Test
+    void normalizeSortsTrimsAndDeduplicates() {
+        assertEquals("id,status", AppointmentFieldSet.normalize("status, id"));
+        assertEquals("id,status", AppointmentFieldSet.normalize("id,status,,id"));
+        assertEquals(AppointmentFieldSet.normalize("patientName,doctorId"),
+                AppointmentFieldSet.normalize(" doctorId , patientName "));
+    }
+
+    @Test
+    void joinsAreLeftOutWhenNoSelectedFieldNeedsThem() {
+        AppointmentFieldSet fields = AppointmentFieldSet.parse("id,status,patientId");
+
+        assertEquals("SELECT a.appointmentTime, a.doctor.id, a.id, a.patient.id, a.status FROM Appointment a"
+                        + " WHERE a.patient.id = :patientId ORDER BY a.appointmentTime",
+                fields.patientHistoryQuery(false));
+        assertEquals("SELECT a.appointmentTime, a.doctorId, a.id, a.patientId, a.status FROM ArchivedAppointment a"
+                        + " WHERE a.patientId = :patientId ORDER BY a.appointmentTime",
+                fields.archivedHistoryQuery(false));
+        assertFalse(fields.doctorDayQuery(false).contains("JOIN"));
+    }
+
+    @Test
+    void onlyTheNeededJoinIsAdded() {
+        AppointmentFieldSet doctorOnly = AppointmentFieldSet.parse("doctorName");
+        assertTrue(doctorOnly.patientHistoryQuery(false).contains(" JOIN a.doctor d"));
+        assertFalse(doctorOnly.patientHistoryQuery(false).contains(" JOIN a.patient p"));
+        assertTrue(doctorOnly.archivedHistoryQuery(false).contains(", Doctor d"));
+        assertFalse(doctorOnly.archivedHistoryQuery(false).contains(", Patient p"));
+
+        AppointmentFieldSet patientOnly = AppointmentFieldSet.parse("patientEmail");
+        assertFalse(patientOnly.doctorDayQuery(false).contains(" JOIN a.doctor d"));
+        assertTrue(patientOnly.doctorDayQuery(false).contains(" JOIN a.patient p"));
+        assertTrue(patientOnly.archivedHistoryQuery(true)
+                .contains("WHERE p.id = a.patientId AND a.patientId = :patientId AND a.appointmentTime >= :since"));
+    }
+
+    @Test
+    void patientNameFilterForcesThePatientJoin() {
+        AppointmentFieldSet fields = AppointmentFieldSet.parse("id");
+
+        assertFalse(fields.doctorDayQuery(false).contains("JOIN a.patient p"));
+        String byName = fields.doctorDayQuery(true);
+        assertTrue(byName.contains(" FROM Appointment a JOIN a.patient p WHERE"));
+        assertTrue(byName.contains("LOWER(p.name) LIKE"));
+        assertTrue(byName.contains("a.status <> 2"));
+    }
+
+    @Test
+    void timeAndDoctorIdAreAlwaysTheFirstColumns() {
+        AppointmentFieldSet fields = AppointmentFieldSet.parse("patientName");
+        assertTrue(fields.patientHistoryQuery(false).startsWith("SELECT a.appointmentTime, a.doctor.id, p.name FROM"));
+
+        Object[] row = {TIME, 7L, "Ann"};
+        assertEquals(TIME, fields.timeOf(row));
+        assertEquals(Long.valueOf(7), fields.doctorIdOf(row));
+        assertEquals(Map.of("patientName", "Ann"), fields.toMap(row));
+    }
+
+    @Test
+    void derivedFieldsComeFromTheAppointmentTime() {
+        AppointmentFieldSet fields = AppointmentFieldSet.parse("endTime,appointmentDate,appointmentTimeOnly,id");
+        // Derived fields share the time column, so nothing beyond time, doctor id and id is selected
+        assertTrue(fields.patientHistoryQuery(false).startsWith("SELECT a.appointmentTime, a.doctor.id, a.id FROM"));
+
+        Map<String, Object> values = fields.toMap(new Object[]{TIME, 7L, 42L});
+
+        // Properties come out in AppointmentDTO order, whatever order they were requested in
+        assertEquals(List.of("id", "appointmentDate", "appointmentTimeOnly", "endTime"), List.copyOf(values.keySet()));
+        assertEquals(42L, values.get("id"));
+        assertEquals(LocalDate.of(2025, 3, 14), values.get("appointmentDate"));
+        assertEquals(LocalTime.of(9, 30), values.get("appointmentTimeOnly"));
+        assertEquals(TIME.plusHours(1), values.get("endTime"));
+    }
+
+    @Test
+    void selectingTimeOrDoctorIdReusesTheLeadingColumns() {
+        AppointmentFieldSet fields = AppointmentFieldSet.parse("doctorId,appointmentTime");
+        assertTrue(fields.patientHistoryQuery(false).startsWith("SELECT a.appointmentTime, a.doctor.id FROM"));
+        assertEquals(Map.of("doctorId", 7L, "appointmentTime", TIME), fields.toMap(new Object[]{TIME, 7L}));
+    }
+}
@@ -0,0 +1,91 @@
+package com.project.back_end.services;
+
+import com.project.back_end.config.AppointmentShards;
+import com.project.back_end.models.DoctorShard;
+import com.project.back_end.repo.DoctorShardRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AppointmentShardRouterTests {
+
+    @Test
+    void unmappedDoctorsAreHashedOverAllShards() {
+        AppointmentShardRouter router = router(0, List.of());
+
+        assertEquals("shard-0", router.shardFor(0L));
+        assertEquals("shard-1", router.shardFor(1L));
+        assertEquals("shard-2", router.shardFor(2L));
+        assertEquals("shard-0", router.shardFor(3L));
+        assertEquals("shard-2", router.shardFor(5L));
+    }
+
+    @Test
+    void hashShardsLeavesNewShardsToTheMap() {
+        // Two hash shards: shard-2 only ever holds doctors moved there
+        AppointmentShardRouter router = router(2, List.of());
+
+        for (long doctorId = 0; doctorId < 20; doctorId++) {
+            assertEquals(doctorId % 2 == 0 ? "shard-0" : "shard-1", router.shardFor(doctorId));
+        }
+    }
+
+    @Test
+    void negativeIdsStillMapToAShard() {
+        assertEquals("shard-2", router(0, List.of()).shardFor(-1L));
+    }
+
+    @Test
+    void mappedDoctorsGoWhereTheMapSays() {
+        AppointmentShardRouter router = router(0, List.of(
+                new DoctorShard(1L, "shard-2", false),
+                new DoctorShard(4L, "shard-0", true)));
+        router.refreshShardMap();
+
+        assertEquals("shard-2", router.shardFor(1L));
+        assertFalse(router.isMigrating(1L));
+        assertEquals("shard-0", router.shardFor(4L));
+        assertTrue(router.isMigrating(4L));
+        // Everyone else is still hashed
+        assertEquals("shard-1", router.shardFor(7L));
+        assertFalse(router.isMigrating(7L));
+    }
+
+    @Test
+    void everyDoctorIsOnTheDefaultShardWithoutExtraShards() {
+        StandardEnvironment environment = new StandardEnvironment();
+        AppointmentShardRouter router = new AppointmentShardRouter(new AppointmentShards(environment),
+                repositoryWith(List.of()), null, 0);
+
+        assertFalse(router.isSharded());
+        assertEquals(AppointmentShards.DEFAULT_SHARD, router.shardFor(41L));
+    }
+
+    // ------------------- HELPERS -------------------
+
+    // shard-0 plus two extra shards; the pools are never connected to
+    private static AppointmentShardRouter router(int hashShards, List<DoctorShard> shardMap) {
+        StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addFirst(new MapPropertySource("test", Map.of(
+                "appointment.shards.urls", "jdbc:mysql://shard1/cms,jdbc:mysql://shard2/cms")));
+        return new AppointmentShardRouter(new AppointmentShards(environment), repositoryWith(shardMap), null, hashShards);
+    }
+
+    private static DoctorShardRepository repositoryWith(List<DoctorShard> entries) {
+        return (DoctorShardRepository) Proxy.newProxyInstance(DoctorShardRepository.class.getClassLoader(),
+                new Class<?>[]{DoctorShardRepository.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("findAll") && method.getParameterCount() == 0) {
+                        return entries;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
@@ -0,0 +1,192 @@
+package com.project.back_end.services;
+
+import com.project.back_end.models.Doctor;
+import com.project.back_end.models.Patient;
+import com.project.back_end.repo.DoctorRepository;
+import com.project.back_end.repo.PatientRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Two appointment shards, each an in-memory database: shard-0 is the application database, shard-1 an extra one
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class AppointmentShardingTests {
+
+    private static final String SHARD_1 = "jdbc:h2:mem:shard-1-" + UUID.randomUUID() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE";
+
+    // Holds shard-1 open for the whole class
+    private static Connection shard1Keeper;
+    private static boolean schemaCopied;
+
+    @DynamicPropertySource
+    static void shards(DynamicPropertyRegistry registry) throws SQLException {
+        shard1Keeper = DriverManager.getConnection(SHARD_1, "sa", "");
+        registry.add("appointment.shards.urls", () -> SHARD_1);
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DoctorService doctorService;
+
+    @Autowired
+    private PatientService patientService;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private AppointmentShardRouter appointmentShardRouter;
+
+    @Autowired
+    private ShardReplicationService shardReplicationService;
+
+    @Autowired
+    private TokenService tokenService;
+
+    private JdbcTemplate shard0;
+    private JdbcTemplate shard1;
+
+    @BeforeEach
+    void setUp() {
+        shard0 = jdbcTemplate;
+        shard1 = new JdbcTemplate(new SingleConnectionDataSource(shard1Keeper, true));
+        if (!schemaCopied) {
+            // Hibernate only creates shard-0; shard-1 gets the same schema and its own appointment id range
+            shard0.queryForList("SCRIPT NODATA", String.class).forEach(shard1::execute);
+            shard1.execute("ALTER TABLE appointment ALTER COLUMN id RESTART WITH 1000000");
+            schemaCopied = true;
+        }
+        for (JdbcTemplate shard : List.of(shard1, shard0)) {
+            shard.update("DELETE FROM appointment");
+            shard.update("DELETE FROM doctor_available_times");
+            shard.update("DELETE FROM doctor");
+            shard.update("DELETE FROM patient");
+        }
+    }
+
+    @Test
+    void doctorsAndPatientsAreCopiedToEveryShard() {
+        Doctor doctor = doctor("copied");
+        assertEquals(1, doctorService.saveDoctor(doctor));
+        assertEquals(1, patientService.createPatient(patient("copied")));
+
+        assertEquals(shard0.queryForList("SELECT * FROM doctor"), shard1.queryForList("SELECT * FROM doctor"));
+        assertEquals(shard0.queryForList("SELECT * FROM patient"), shard1.queryForList("SELECT * FROM patient"));
+        assertEquals(List.of("09:00-10:00", "10:00-11:00"), shard1.queryForList(
+                "SELECT available_times FROM doctor_available_times WHERE doctor_id = ?", String.class, doctor.getId()));
+
+        doctor.setAvailableTimes(List.of("14:00-15:00"));
+        assertEquals(1, doctorService.updateDoctor(doctor));
+        assertEquals(List.of("14:00-15:00"), shard1.queryForList(
+                "SELECT available_times FROM doctor_available_times WHERE doctor_id = ?", String.class, doctor.getId()));
+    }
+
+    @Test
+    void bookingsGoToTheDoctorsShardAndHistoryMergesThem() throws Exception {
+        Patient patient = patient("history");
+        patientService.createPatient(patient);
+        Doctor first = doctor("first");
+        Doctor second = doctor("second");
+        doctorService.saveDoctor(first);
+        doctorService.saveDoctor(second);
+        // Consecutive ids hash to different shards
+        assertEquals(List.of("shard-0", "shard-1"), List.of(first, second).stream()
+                .map(doctor -> appointmentShardRouter.shardFor(doctor.getId())).sorted().toList());
+
+        String token = tokenService.generateToken(patient.getId().toString());
+        LocalDateTime earlier = LocalDateTime.now().plusDays(3).withHour(9).withMinute(0).withSecond(0).withNano(0);
+        book(token, second, patient, earlier.plusDays(1));
+        book(token, first, patient, earlier);
+
+        for (Doctor doctor : List.of(first, second)) {
+            JdbcTemplate own = appointmentShardRouter.shardFor(doctor.getId()).equals("shard-0") ? shard0 : shard1;
+            JdbcTemplate other = own == shard0 ? shard1 : shard0;
+            assertEquals(1, own.queryForObject("SELECT COUNT(*) FROM appointment WHERE doctor_id = ?", Integer.class, doctor.getId()));
+            assertEquals(0, other.queryForObject("SELECT COUNT(*) FROM appointment WHERE doctor_id = ?", Integer.class, doctor.getId()));
+        }
+
+        mockMvc.perform(get("/patient/{id}/{token}", patient.getId(), token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.appointments.length()").value(2))
+                .andExpect(jsonPath("$.appointments[0].doctorId").value(first.getId()))
+                .andExpect(jsonPath("$.appointments[1].doctorId").value(second.getId()));
+    }
+
+    @Test
+    void fullCopyFillsAShardThatMissedTheWrites() throws InterruptedException {
+        doctorService.saveDoctor(doctor("backfilled"));
+        patientService.createPatient(patient("backfilled"));
+        shard1.update("DELETE FROM doctor_available_times");
+        shard1.update("DELETE FROM doctor");
+        shard1.update("DELETE FROM patient");
+
+        shardReplicationService.replicateAll();
+        // Runs in the background, like the admin endpoint that starts it
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!"done".equals(shardReplicationService.getLastRun().get("state"))
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+
+        assertEquals(doctorRepository.count(), (long) shard1.queryForObject("SELECT COUNT(*) FROM doctor", Long.class));
+        assertEquals(patientRepository.count(), (long) shard1.queryForObject("SELECT COUNT(*) FROM patient", Long.class));
+        assertEquals(2, shard1.queryForObject("SELECT COUNT(*) FROM doctor_available_times", Integer.class));
+        assertEquals("done", shardReplicationService.getLastRun().get("state"));
+    }
+
+    private void book(String token, Doctor doctor, Patient patient, LocalDateTime time) throws Exception {
+        mockMvc.perform(post("/appointments/{token}", token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"doctor": {"id": %d}, "patient": {"id": %d}, "appointmentTime": "%s", "status": 0}
+                                """.formatted(doctor.getId(), patient.getId(), time)))
+                .andExpect(status().isCreated());
+    }
+
+    private static Doctor doctor(String name) {
+        Doctor doctor = new Doctor();
+        doctor.setName("Dr " + name);
+        doctor.setSpecialty("Oncology");
+        doctor.setEmail(name + ".doctor@example.com");
+        doctor.setPassword("secret1");
+        doctor.setPhone("5556667777");
+        doctor.setAvailableTimes(List.of("09:00-10:00", "10:00-11:00"));
+        return doctor;
+    }
+
+    private static Patient patient(String name) {
+        return new Patient(null, "Patient " + name, name + ".patient@example.com", "secret1", "5557778888", "8 Shard Street");
+    }
+}
@@ -0,0 +1,150 @@
+package com.project.back_end.services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AuditRingBufferTests {
+
+    @Test
+    void capacityIsRoundedUpToAPowerOfTwo() {
+        assertEquals(2, new AuditRingBuffer<Integer>(1).capacity());
+        assertEquals(2, new AuditRingBuffer<Integer>(2).capacity());
+        assertEquals(4, new AuditRingBuffer<Integer>(3).capacity());
+        assertEquals(8, new AuditRingBuffer<Integer>(5).capacity());
+        assertEquals(16, new AuditRingBuffer<Integer>(16).capacity());
+        assertEquals(16384, new AuditRingBuffer<Integer>(16384).capacity());
+    }
+
+    @Test
+    void drainsInOfferOrderUpToMax() {
+        AuditRingBuffer<Integer> buffer = new AuditRingBuffer<>(8);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(buffer.offer(i));
+        }
+        assertEquals(5, buffer.size());
+
+        List<Integer> drained = new ArrayList<>();
+        assertEquals(3, buffer.drainTo(drained, 3));
+        assertEquals(List.of(0, 1, 2), drained);
+        assertEquals(2, buffer.drainTo(drained, 10));
+        assertEquals(List.of(0, 1, 2, 3, 4), drained);
+        assertEquals(0, buffer.drainTo(drained, 10));
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    void keepsOrderWhenWrappingPastCapacity() {
+        AuditRingBuffer<Integer> buffer = new AuditRingBuffer<>(4);
+        List<Integer> drained = new ArrayList<>();
+        int next = 0;
+        // 3 per round over 4 slots, so every round after the first straddles the wrap
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 3; i++) {
+                assertTrue(buffer.offer(next++));
+            }
+            assertEquals(3, buffer.drainTo(drained, 10));
+        }
+        assertEquals(30, drained.size());
+        for (int i = 0; i < drained.size(); i++) {
+            assertEquals(i, (int) drained.get(i));
+        }
+    }
+
+    @Test
+    void offerFailsWhenFullAndRecoversAfterDrain() {
+        AuditRingBuffer<Integer> buffer = new AuditRingBuffer<>(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.offer(i));
+        }
+        assertFalse(buffer.offer(4));
+        assertEquals(4, buffer.size());
+
+        List<Integer> drained = new ArrayList<>();
+        assertEquals(1, buffer.drainTo(drained, 1));
+        assertTrue(buffer.offer(4));
+        assertFalse(buffer.offer(5));
+
+        assertEquals(4, buffer.drainTo(drained, 10));
+        assertEquals(List.of(0, 1, 2, 3, 4), drained);
+    }
+
+    @Test
+    @Timeout(30)
+    void concurrentProducersLoseNothingAndKeepTheirOwnOrder() throws InterruptedException {
+        int producers = 4;
+        int perProducer = 10_000;
+        // Small enough that producers regularly find it full while the consumer drains
+        AuditRingBuffer<long[]> buffer = new AuditRingBuffer<>(64);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            long producer = p;
+            threads.add(Thread.ofPlatform().start(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (long seq = 0; seq < perProducer; seq++) {
+                    long[] element = {producer, seq};
+                    while (!buffer.offer(element)) {
+                        Thread.yield();
+                    }
+                }
+            }));
+        }
+
+        start.countDown();
+        long[] expected = new long[producers];
+        List<long[]> batch = new ArrayList<>();
+        int received = 0;
+        while (received < producers * perProducer) {
+            batch.clear();
+            int drained = buffer.drainTo(batch, 32);
+            if (drained == 0) {
+                // Let a producer that claimed a slot finish writing it
+                Thread.yield();
+            }
+            received += drained;
+            for (long[] element : batch) {
+                int producer = (int) element[0];
+                assertEquals(expected[producer], element[1], "producer " + producer + " out of order");
+                expected[producer]++;
+            }
+        }
+        for (Thread thread : threads) {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        }
+
+        for (int p = 0; p < producers; p++) {
+            assertEquals(perProducer, expected[p]);
+        }
+        assertEquals(0, buffer.size());
+        assertEquals(0, buffer.drainTo(batch, 32));
+    }
+
+    @Test
+    void eventsRecordedAfterStopAreCountedAsOverflow() throws InterruptedException {
+        // Nothing is buffered, so neither the writer nor the shutdown flush touches the database
+        AuditService auditService = new AuditService(new JdbcTemplate(), 4, 10, 10);
+        auditService.start();
+        auditService.stop();
+
+        auditService.record("BOOKED", 1L, 2L, 3L, null);
+
+        assertEquals(1L, auditService.getStats().get("recorded"));
+        assertEquals(1L, auditService.getStats().get("overflowed"));
+        assertEquals(0L, auditService.getStats().get("written"));
+    }
+}
@@ -0,0 +1,49 @@
+package com.project.back_end.services;
+
+import com.project.back_end.models.Prescription;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PrescriptionSearchServiceTests {
+
+    @Test
+    void tokenizeLowercasesAndSplitsOnNonWordCharacters() {
+        assertEquals(List.of("amoxicillin", "500mg", "twice", "daily"),
+                PrescriptionSearchService.tokenize("Amoxicillin 500MG, twice-daily."));
+    }
+
+    @Test
+    void tokenizeDropsSingleCharacterTokens() {
+        assertEquals(List.of("vitamin"), PrescriptionSearchService.tokenize("Vitamin D"));
+    }
+
+    @Test
+    void tokenizeKeepsFirstOccurrenceOnly() {
+        assertEquals(List.of("take", "with", "food"),
+                PrescriptionSearchService.tokenize("take with food, TAKE with food"));
+    }
+
+    @Test
+    void tokenizeKeepsNonAsciiLetters() {
+        assertEquals(List.of("ibuprofène", "après", "repas"),
+                PrescriptionSearchService.tokenize("Ibuprofène après repas"));
+    }
+
+    @Test
+    void tokenizeReturnsNothingForMissingText() {
+        assertEquals(List.of(), PrescriptionSearchService.tokenize(null));
+        assertEquals(List.of(), PrescriptionSearchService.tokenize("  "));
+        assertEquals(List.of(), PrescriptionSearchService.tokenize("- / ."));
+    }
+
+    @Test
+    void searchTokensMergeMedicationAndNotes() {
+        Prescription prescription = new Prescription(null, "Jane", 1L, "Amoxicillin", "500mg",
+                "Finish the amoxicillin course");
+        assertEquals(List.of("amoxicillin", "finish", "the", "course"),
+                PrescriptionSearchService.searchTokensFor(prescription));
+    }
+}